@@ -0,0 +1,56 @@
+#!/usr/bin/env bash
+# Compares time to first request and RSS of the plain jar and the AOT + CDS build (see 'faststart' in build.gradle).
+# DB from compose.yaml has to be running, external API is not called before the first scheduled refresh.
+#
+# usage: DB_URL=jdbc:postgresql://localhost:5432/currency-db scripts/startup-benchmark.sh [runs] [port]
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${2:-8080}
+URL="http://localhost:${PORT}/currency/list"
+DB_URL=${DB_URL:-jdbc:postgresql://localhost:5432/currency-db}
+
+cd "$(dirname "$0")/.."
+./gradlew -q -Pfaststart -PcdsDatasourceUrl="${DB_URL}" bootJar cdsArchive
+
+PLAIN_JAR=$(ls build/libs/*-SNAPSHOT.jar | grep -v plain | head -n 1)
+
+# sets MEASURED_MS to milliseconds to first successful request and MEASURED_RSS to RSS in KB after it,
+# runs in the main shell (not in a subshell), so 'exit' stops the whole benchmark
+measure() {
+  local start pid
+  start=$(date +%s%N)
+  "$@" --server.port="${PORT}" --spring.datasource.url="${DB_URL}" > /dev/null 2>&1 &
+  pid=$!
+  until curl -sf -o /dev/null "${URL}"; do
+    if ! kill -0 "${pid}" 2> /dev/null; then
+      echo "application exited before serving requests" >&2
+      exit 1
+    fi
+    sleep 0.01
+  done
+  MEASURED_MS=$(( ($(date +%s%N) - start) / 1000000 ))
+  MEASURED_RSS=$(ps -o rss= -p "${pid}" | tr -d ' ')
+  kill "${pid}"
+  wait "${pid}" 2> /dev/null || true
+  if [[ -z "${MEASURED_RSS}" ]]; then
+    echo "application exited before its RSS was read" >&2
+    exit 1
+  fi
+}
+
+run() {
+  local name=$1
+  shift
+  local total_ms=0 total_rss=0
+  for ((i = 1; i <= RUNS; i++)); do
+    measure "$@"
+    total_ms=$((total_ms + MEASURED_MS))
+    total_rss=$((total_rss + MEASURED_RSS))
+  done
+  printf "%-12s %10d %10d\n" "${name}" $((total_ms / RUNS)) $((total_rss / RUNS / 1024))
+}
+
+printf "%-12s %10s %10s\n" "build" "first ms" "RSS MB"
+run "plain" java -jar "${PLAIN_JAR}"
+run "aot+cds" java -XX:SharedArchiveFile=build/cds/application.jsa -Dspring.aot.enabled=true -jar build/cds/application.jar
@@ -0,0 +1,36 @@
+package com.task.spribetask.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Synthetic currency codes and rates, real Fixer '/latest' response has about 170 symbols.
+ */
+final class BenchmarkData {
+
+    static final int REAL_SYMBOLS_COUNT = 170;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @return 3 letters codes 'AAA', 'AAB', ...
+     */
+    static List<String> currencyCodes(int count) {
+        var codes = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            codes.add("" + (char) ('A' + i / (26 * 26) % 26) + (char) ('A' + i / 26 % 26) + (char) ('A' + i % 26));
+        }
+        return codes;
+    }
+
+    static Map<String, Double> rates(List<String> currencies) {
+        var random = ThreadLocalRandom.current();
+        var rates = new HashMap<String, Double>();
+        currencies.forEach(currency -> rates.put(currency, random.nextDouble(0.00001, 20000)));
+        return rates;
+    }
+}
@@ -0,0 +1,73 @@
+package com.task.spribetask.benchmark;
+
+import com.task.spribetask.converter.APIResponseToBaseRatesConverter;
+import com.task.spribetask.converter.BaseRatesToCurrencyRatesConverter;
+import com.task.spribetask.converter.BaseRatesToCurrencyRatesEntityConverter;
+import com.task.spribetask.converter.CurrencyRatesEntityToCurrencyRatesConverter;
+import com.task.spribetask.dto.CurrencyRates;
+import com.task.spribetask.dto.external.APIResponse;
+import com.task.spribetask.entity.CurrencyRatesEntity;
+import com.task.spribetask.rates.BaseRates;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversions done on every refresh (external response to rates, rates to entity and snapshot) and on startup
+ * (entity to rates).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConverterBenchmark {
+
+    private static final String REBASE_CURRENCY = "AAB";
+
+    @Param({"10", "170"})
+    private int symbolsCount;
+
+    private final APIResponseToBaseRatesConverter apiResponseToBaseRatesConverter = new APIResponseToBaseRatesConverter();
+    private final BaseRatesToCurrencyRatesEntityConverter baseRatesToCurrencyRatesEntityConverter = new BaseRatesToCurrencyRatesEntityConverter();
+    private final BaseRatesToCurrencyRatesConverter baseRatesToCurrencyRatesConverter = new BaseRatesToCurrencyRatesConverter();
+    private final CurrencyRatesEntityToCurrencyRatesConverter currencyRatesEntityToCurrencyRatesConverter = new CurrencyRatesEntityToCurrencyRatesConverter();
+
+    private APIResponse apiResponse;
+    private BaseRates baseRates;
+    private CurrencyRatesEntity currencyRatesEntity;
+
+    @Setup
+    public void setUp() {
+        var currencies = BenchmarkData.currencyCodes(symbolsCount);
+        apiResponse = new APIResponse(true, System.currentTimeMillis() / 1000, currencies.get(0), LocalDate.now(),
+                BenchmarkData.rates(currencies), null);
+        baseRates = apiResponseToBaseRatesConverter.convert(apiResponse);
+        currencyRatesEntity = baseRatesToCurrencyRatesEntityConverter.convert(baseRates);
+    }
+
+    @Benchmark
+    public BaseRates apiResponseToBaseRates() {
+        return apiResponseToBaseRatesConverter.convert(apiResponse);
+    }
+
+    @Benchmark
+    public Optional<BaseRates> rebase() {
+        return baseRates.rebase(REBASE_CURRENCY);
+    }
+
+    @Benchmark
+    public CurrencyRatesEntity baseRatesToCurrencyRatesEntity() {
+        return baseRatesToCurrencyRatesEntityConverter.convert(baseRates);
+    }
+
+    @Benchmark
+    public CurrencyRates baseRatesToCurrencyRates() {
+        return baseRatesToCurrencyRatesConverter.convert(baseRates);
+    }
+
+    @Benchmark
+    public CurrencyRates currencyRatesEntityToCurrencyRates() {
+        return currencyRatesEntityToCurrencyRatesConverter.convert(currencyRatesEntity);
+    }
+}
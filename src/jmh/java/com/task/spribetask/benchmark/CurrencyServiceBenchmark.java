@@ -0,0 +1,67 @@
+package com.task.spribetask.benchmark;
+
+import com.task.spribetask.dto.CurrencyRates;
+import com.task.spribetask.metrics.CurrencyMetrics;
+import com.task.spribetask.rates.RateTable;
+import com.task.spribetask.service.CurrencyRatesSnapshot;
+import com.task.spribetask.service.CurrencyRatesSnapshotFactory;
+import com.task.spribetask.service.CurrencyService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read path of '/currency/latest', '/currency/list' and '/currency/convert' with different number of registered
+ * currencies. Thread count is set with -PjmhThreads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CurrencyServiceBenchmark {
+
+    @Param({"10", "170", "1000"})
+    private int currenciesCount;
+
+    private List<String> currencies;
+    private CurrencyService currencyService;
+
+    @Setup
+    public void setUp() {
+        currencies = BenchmarkData.currencyCodes(currenciesCount);
+        var symbols = currencies.subList(0, Math.min(currenciesCount, BenchmarkData.REAL_SYMBOLS_COUNT));
+        var currencyRatesSnapshotFactory = new CurrencyRatesSnapshotFactory(Jackson2ObjectMapperBuilder.json().build(), true);
+        var currencyRatesMap = new ConcurrentHashMap<String, CurrencyRatesSnapshot>();
+        currencies.forEach(currency -> currencyRatesMap.put(currency, currencyRatesSnapshotFactory.create(
+                new CurrencyRates(currency, LocalDateTime.now(), RateTable.of(BenchmarkData.rates(symbols))))));
+        // dependencies used only by refresh and registration are not needed for reads,
+        // metrics are real to include instrumentation cost of the read path
+        currencyService = new CurrencyService(currencyRatesMap, null, null, currencyRatesSnapshotFactory,
+                Duration.ofHours(1), null, null, null, new CurrencyMetrics(new SimpleMeterRegistry()), null, null, false);
+    }
+
+    @Benchmark
+    public CurrencyRates getCurrencyRate() {
+        return currencyService.getCurrencyRate(randomCurrency());
+    }
+
+    @Benchmark
+    public List<String> getAllCurrencies() {
+        return currencyService.getAllCurrencies();
+    }
+
+    @Benchmark
+    public double convert() {
+        return currencyService.convert(randomCurrency(), currencies.get(0), 100).result();
+    }
+
+    private String randomCurrency() {
+        return currencies.get(ThreadLocalRandom.current().nextInt(currenciesCount));
+    }
+}
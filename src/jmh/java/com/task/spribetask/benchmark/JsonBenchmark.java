@@ -0,0 +1,55 @@
+package com.task.spribetask.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.task.spribetask.dto.CurrencyRates;
+import com.task.spribetask.dto.external.APIResponse;
+import com.task.spribetask.rates.RateTable;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of rates snapshot (done once per refresh for each currency) and deserialization of external API
+ * response with realistic number of symbols.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonBenchmark {
+
+    @Param({"10", "170"})
+    private int symbolsCount;
+
+    // the same date settings as ObjectMapper configured by Spring Boot
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private CurrencyRates currencyRates;
+    private byte[] apiResponseJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        var currencies = BenchmarkData.currencyCodes(symbolsCount);
+        var rates = BenchmarkData.rates(currencies);
+        currencyRates = new CurrencyRates(currencies.get(0), LocalDateTime.now(), RateTable.of(rates));
+        apiResponseJson = objectMapper.writeValueAsBytes(
+                new APIResponse(true, System.currentTimeMillis() / 1000, currencies.get(0), LocalDate.now(), rates, null));
+    }
+
+    @Benchmark
+    public byte[] serializeCurrencyRates() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(currencyRates);
+    }
+
+    @Benchmark
+    public APIResponse deserializeAPIResponse() throws IOException {
+        return objectMapper.readValue(apiResponseJson, APIResponse.class);
+    }
+}
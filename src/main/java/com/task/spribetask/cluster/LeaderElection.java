@@ -0,0 +1,125 @@
+package com.task.spribetask.cluster;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Elects one node of the cluster to refresh rates with Postgres session level advisory lock. The lock is held by
+ * a dedicated connection taken from the pool for as long as the node is a leader, so Postgres releases it as soon as
+ * the leader's connection is closed (node stopped or crashed) and another node takes it over on its next attempt.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LeaderElection {
+
+    // any application wide unique number, all nodes must use the same one
+    private static final long REFRESH_LOCK_KEY = 7_262_117_001L;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final DataSource dataSource;
+    @Value("${currency.cluster.leader-election.enabled:true}")
+    private final boolean enabled;
+    // guarded by lock, not null while this node is a leader
+    private Connection lockConnection;
+
+    /**
+     * Checks that the lock is still held or tries to acquire it, never blocks on the lock held by another node.
+     * With disabled leader election every node is a leader.
+     */
+    public boolean isLeader() {
+        if (!enabled) {
+            return true;
+        }
+        lock.lock();
+        try {
+            if (lockConnection != null) {
+                if (isValid(lockConnection)) {
+                    return true;
+                }
+                log.warn("Connection holding refresh lock is lost, this node is not a leader anymore");
+                release(lockConnection);
+                lockConnection = null;
+            }
+            lockConnection = tryAcquire();
+            return lockConnection != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void resign() {
+        lock.lock();
+        try {
+            if (lockConnection != null) {
+                release(lockConnection);
+                lockConnection = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Connection tryAcquire() {
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            connection.setAutoCommit(true);
+            try (var statement = connection.prepareStatement("select pg_try_advisory_lock(?)")) {
+                statement.setLong(1, REFRESH_LOCK_KEY);
+                try (var resultSet = statement.executeQuery()) {
+                    if (resultSet.next() && resultSet.getBoolean(1)) {
+                        log.info("This node is elected to refresh rates");
+                        return connection;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Failed to acquire refresh lock", e);
+        }
+        close(connection);
+        return null;
+    }
+
+    /**
+     * Session lock survives returning connection to the pool, so it is unlocked explicitly.
+     */
+    private static void release(Connection connection) {
+        try (var statement = connection.prepareStatement("select pg_advisory_unlock(?)")) {
+            statement.setLong(1, REFRESH_LOCK_KEY);
+            statement.execute();
+        } catch (SQLException e) {
+            log.warn("Failed to release refresh lock: {}", e.getMessage());
+        }
+        close(connection);
+    }
+
+    private static boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void close(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.warn("Failed to close connection: {}", e.getMessage());
+        }
+    }
+}
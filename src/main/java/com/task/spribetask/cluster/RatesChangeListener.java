@@ -0,0 +1,137 @@
+package com.task.spribetask.cluster;
+
+import com.task.spribetask.service.CurrencyRatesRetrieveTask;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Applies rates saved by other nodes as soon as they are committed: listens to {@link RatesChangeNotifier#CHANNEL}
+ * on a dedicated connection and reads the latest rows of notified currencies. Notifications are not queued for
+ * disconnected listeners, so after every (re)connect all rates are synced once. Currencies added on followers are
+ * received on {@link RatesChangeNotifier#CURRENCY_ADDED_CHANNEL}, only the leader retrieves their rates.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RatesChangeListener {
+
+    // only bounds how long shutdown waits, notifications are returned as soon as they arrive
+    private static final int POLL_TIMEOUT_MILLIS = 1000;
+    private static final Duration RECONNECT_DELAY = Duration.ofSeconds(5);
+
+    private final DataSource dataSource;
+    private final RatesChangeNotifier ratesChangeNotifier;
+    private final CurrencyRatesRetrieveTask currencyRatesRetrieveTask;
+    @Value("${currency.cluster.notify.enabled:true}")
+    private final boolean enabled;
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        Thread.ofVirtual().name("rates-change-listener").start(this::listen);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+    }
+
+    private void listen() {
+        while (running) {
+            try (var connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try {
+                    receiveNotifications(connection);
+                } finally {
+                    // connection goes back to the pool, it must not keep listening
+                    execute(connection, "unlisten *");
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (running) {
+                    log.warn("Listening to rates changes failed, reconnecting in {}", RECONNECT_DELAY, e);
+                    sleep(RECONNECT_DELAY);
+                }
+            }
+        }
+    }
+
+    private void receiveNotifications(Connection connection) throws SQLException {
+        execute(connection, "listen " + RatesChangeNotifier.CHANNEL);
+        execute(connection, "listen " + RatesChangeNotifier.CURRENCY_ADDED_CHANNEL);
+        currencyRatesRetrieveTask.applyAllSavedRates();
+        log.info("Listening to rates changes of other nodes");
+
+        var pgConnection = connection.unwrap(PGConnection.class);
+        while (running) {
+            var notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+            if (notifications != null) {
+                for (var notification : notifications) {
+                    if (RatesChangeNotifier.CURRENCY_ADDED_CHANNEL.equals(notification.getName())) {
+                        handleCurrencyAdded(notification.getParameter());
+                    } else {
+                        handle(notification.getParameter());
+                    }
+                }
+            }
+        }
+    }
+
+    void handle(String payload) {
+        var separatorIndex = payload.indexOf(':');
+        if (separatorIndex < 0) {
+            log.warn("Unexpected rates change notification '{}'", payload);
+            return;
+        }
+        // this node has already applied own rates
+        if (payload.substring(0, separatorIndex).equals(ratesChangeNotifier.getNodeId())) {
+            return;
+        }
+        var currencies = payload.substring(separatorIndex + 1);
+        try {
+            if (currencies.equals(RatesChangeNotifier.ALL_CURRENCIES)) {
+                currencyRatesRetrieveTask.applyAllSavedRates();
+            } else {
+                currencyRatesRetrieveTask.applySavedRates(Arrays.asList(currencies.split(",")));
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to apply rates of {} saved by another node", currencies, e);
+        }
+    }
+
+    void handleCurrencyAdded(String currency) {
+        try {
+            currencyRatesRetrieveTask.addFromOtherNode(currency);
+        } catch (RuntimeException e) {
+            log.error("Failed to add currency {} passed by another node", currency, e);
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (var statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.task.spribetask.cluster;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Tells other nodes which currencies got new rates in DB with Postgres NOTIFY, see {@link RatesChangeListener}.
+ * Payload is {@code <node id>:<comma separated currencies>}, {@code *} instead of currencies means all of them.
+ * Currencies added on followers are passed to the leader on a separate channel, payload is the currency.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RatesChangeNotifier {
+
+    static final String CHANNEL = "currency_rates";
+    static final String CURRENCY_ADDED_CHANNEL = "currency_added";
+    static final String ALL_CURRENCIES = "*";
+    // Postgres rejects payloads of 8000 bytes and longer
+    private static final int MAX_PAYLOAD_BYTES = 7999;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final JdbcTemplate jdbcTemplate;
+    @Value("${currency.cluster.notify.enabled:true}")
+    private final boolean enabled;
+
+    /**
+     * Must be called after rates are committed, other nodes read them right after notification.
+     */
+    public void notifyRatesSaved(Collection<String> currencies) {
+        if (!enabled || currencies.isEmpty()) {
+            return;
+        }
+        var payload = nodeId + ":" + String.join(",", currencies);
+        if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD_BYTES) {
+            payload = nodeId + ":" + ALL_CURRENCIES;
+        }
+        try {
+            jdbcTemplate.queryForList("select pg_notify(?, ?)", CHANNEL, payload);
+        } catch (DataAccessException e) {
+            // other nodes still get these rates on the next periodic sync
+            log.warn("Failed to notify other nodes about new rates of {}: {}", currencies, e.getMessage());
+        }
+    }
+
+    /**
+     * @return false if notification was not sent, so no node got the currency
+     */
+    public boolean notifyCurrencyAdded(String currency) {
+        if (!enabled) {
+            return false;
+        }
+        try {
+            jdbcTemplate.queryForList("select pg_notify(?, ?)", CURRENCY_ADDED_CHANNEL, currency);
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("Failed to pass added currency {} to other nodes: {}", currency, e.getMessage());
+            return false;
+        }
+    }
+
+    String getNodeId() {
+        return nodeId;
+    }
+}
@@ -0,0 +1,17 @@
+package com.task.spribetask.config;
+
+import com.task.spribetask.resource.AccessLogFilter;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(AccessLogProperties.class)
+public class AccessLogConfig {
+
+    @Bean
+    public AccessLogFilter accessLogFilter(AccessLogProperties accessLogProperties) {
+        return new AccessLogFilter(accessLogProperties);
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.task.spribetask.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Map;
+
+/**
+ * @param defaultSampleRate share of requests written to access log (0.0 - none, 1.0 - all) for paths without own rate
+ * @param sampleRates       sample rates by request path, for example {@code sample-rates[/currency/latest]=0.001}
+ */
+@ConfigurationProperties("currency.access-log")
+public record AccessLogProperties(@DefaultValue("true") boolean enabled,
+                                  @DefaultValue("1.0") double defaultSampleRate,
+                                  @DefaultValue Map<String, Double> sampleRates) {
+}
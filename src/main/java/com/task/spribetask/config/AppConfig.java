@@ -1,18 +1,24 @@
 package com.task.spribetask.config;
 
-import com.task.spribetask.dto.CurrencyRates;
+import com.task.spribetask.cluster.LeaderElection;
+import com.task.spribetask.cluster.RatesChangeNotifier;
+import com.task.spribetask.external.CircuitBreaker;
 import com.task.spribetask.external.ExternalAPIClient;
+import com.task.spribetask.metrics.CurrencyMetrics;
 import com.task.spribetask.repository.CurrencyRatesRepository;
 import com.task.spribetask.service.CurrencyRatesRetrieveTask;
+import com.task.spribetask.service.CurrencyRatesSnapshot;
+import com.task.spribetask.service.CurrencyRatesSnapshotFactory;
 import com.task.spribetask.service.CurrencyService;
+import com.task.spribetask.service.RatesWarmStartFile;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.Scope;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 import java.time.Duration;
@@ -24,35 +30,62 @@ public class AppConfig {
 
     private final CurrencyRatesRepository currencyRatesRepository;
     private final ConversionService conversionService;
+    private final CurrencyRatesSnapshotFactory currencyRatesSnapshotFactory;
     @Value("${currency.retrieve.interval}")
     private final Duration currencyRetrieveInterval;
-    private final ObjectProvider<CurrencyRatesRetrieveTask> ratesRetrieveTaskObjectProvider;
     private final ExternalAPIClient externalAPIClient;
+    private final CircuitBreaker currencyCircuitBreaker;
+    private final CurrencyMetrics currencyMetrics;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final LeaderElection leaderElection;
+    private final RatesChangeNotifier ratesChangeNotifier;
+    @Value("${currency.cluster.sync-interval:5m}")
+    private final Duration clusterSyncInterval;
+    private final RatesWarmStartFile ratesWarmStartFile;
+    @Value("${currency.startup.async:false}")
+    private final boolean asyncStartup;
+    @Value("${spring.threads.virtual.enabled:false}")
+    private final boolean virtualThreadsEnabled;
+    @Value("${currency.scheduler.pool-size:5}")
+    private final int schedulerPoolSize;
 
     @Bean
-    public ConcurrentHashMap<String, CurrencyRates> currencyRatesMap() {
+    public ConcurrentHashMap<String, CurrencyRatesSnapshot> currencyRatesMap() {
         return new ConcurrentHashMap<>();
     }
 
     @Bean(initMethod = "init")
     public CurrencyService currencyService() {
         return new CurrencyService(currencyRatesMap(), currencyRatesRepository, conversionService,
-                currencyRetrieveInterval, taskScheduler(), ratesRetrieveTaskObjectProvider);
+                currencyRatesSnapshotFactory, currencyRetrieveInterval, taskScheduler(), currencyRatesRetrieveTask(),
+                currencyCircuitBreaker, currencyMetrics, clusterSyncInterval,
+                ratesWarmStartFile, asyncStartup);
     }
 
+    /**
+     * With 'spring.threads.virtual.enabled' every scheduled run gets its own virtual thread
+     * (Tomcat is switched to virtual threads by the same property), otherwise fixed pool of platform threads is used.
+     */
     @Bean
     public TaskScheduler taskScheduler() {
+        if (virtualThreadsEnabled) {
+            var simpleAsyncTaskScheduler = new SimpleAsyncTaskScheduler();
+            simpleAsyncTaskScheduler.setVirtualThreads(true);
+            simpleAsyncTaskScheduler.setThreadNamePrefix("VirtualTaskScheduler");
+            return simpleAsyncTaskScheduler;
+        }
         var threadPoolTaskScheduler = new ThreadPoolTaskScheduler();
-        threadPoolTaskScheduler.setPoolSize(5);
+        threadPoolTaskScheduler.setPoolSize(schedulerPoolSize);
         threadPoolTaskScheduler.setThreadNamePrefix("ThreadPoolTaskScheduler");
+        currencyMetrics.registerSchedulerQueue(threadPoolTaskScheduler);
         return threadPoolTaskScheduler;
     }
 
     @Bean
-    @Scope("prototype")
-    public CurrencyRatesRetrieveTask currencyRatesRetrieveTask(String currency) {
-        return new CurrencyRatesRetrieveTask(currency, currencyRatesMap(), currencyRatesRepository, conversionService,
-                externalAPIClient);
+    public CurrencyRatesRetrieveTask currencyRatesRetrieveTask() {
+        return new CurrencyRatesRetrieveTask(currencyRatesMap(), currencyRatesRepository, conversionService,
+                currencyRatesSnapshotFactory, externalAPIClient, currencyMetrics,
+                applicationEventPublisher, leaderElection, ratesChangeNotifier);
     }
 
 }
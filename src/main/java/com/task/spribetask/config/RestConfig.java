@@ -1,21 +1,42 @@
 package com.task.spribetask.config;
 
+import com.task.spribetask.external.CircuitBreaker;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.Executors;
 
 @Configuration
 public class RestConfig {
 
+    /**
+     * Client keeps connections to external API alive and reuses them between calls.
+     * Per-call deadline is set on each request (see currency.service.request-timeout).
+     */
+    @Bean
+    public HttpClient currencyHttpClient(
+            @Value("${currency.service.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreadsEnabled) {
+        var builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout);
+        if (virtualThreadsEnabled) {
+            // response handling (including saving of rates to DB) runs on virtual threads instead of client's cached pool
+            builder.executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        return builder.build();
+    }
+
     @Bean
-    public RestTemplate currencyRestTemplate(
-            RestTemplateBuilder restTemplateBuilder,
-            @Value("${currency.service.url}") String url) {
-        return restTemplateBuilder
-                .rootUri(url)
-                .build();
+    public CircuitBreaker currencyCircuitBreaker(
+            @Value("${currency.service.circuit-breaker.failure-threshold:2}") int failureThreshold,
+            @Value("${currency.service.circuit-breaker.open-duration:5m}") Duration openDuration,
+            @Value("${currency.service.circuit-breaker.max-open-duration:1h}") Duration maxOpenDuration) {
+        return new CircuitBreaker(Clock.systemUTC(), failureThreshold, openDuration, maxOpenDuration);
     }
 
 }
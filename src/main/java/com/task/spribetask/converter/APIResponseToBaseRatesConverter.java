@@ -0,0 +1,25 @@
+package com.task.spribetask.converter;
+
+import com.task.spribetask.dto.external.APIResponse;
+import com.task.spribetask.rates.BaseRates;
+import com.task.spribetask.rates.RateTable;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+
+@Component
+public class APIResponseToBaseRatesConverter implements Converter<APIResponse, BaseRates> {
+
+    @Override
+    public BaseRates convert(APIResponse source) {
+        if (!source.isSuccess()) {
+            return null;
+        }
+        var rates = new HashMap<String, Double>(source.getRates());
+        // base rate is needed in the table to calculate cross rates for other bases
+        rates.putIfAbsent(source.getBase(), 1.0);
+
+        return new BaseRates(source.getBase(), source.getTimestamp(), RateTable.of(rates));
+    }
+}
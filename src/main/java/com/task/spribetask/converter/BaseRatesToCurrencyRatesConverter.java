@@ -0,0 +1,20 @@
+package com.task.spribetask.converter;
+
+import com.task.spribetask.dto.CurrencyRates;
+import com.task.spribetask.rates.BaseRates;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.TimeZone;
+
+@Component
+public class BaseRatesToCurrencyRatesConverter implements Converter<BaseRates, CurrencyRates> {
+
+    @Override
+    public CurrencyRates convert(BaseRates source) {
+        var rateTimestamp = LocalDateTime.ofInstant(Instant.ofEpochSecond(source.timestamp()), TimeZone.getDefault().toZoneId());
+        return new CurrencyRates(source.base(), rateTimestamp, source.rates());
+    }
+}
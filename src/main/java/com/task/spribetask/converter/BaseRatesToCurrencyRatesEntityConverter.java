@@ -1,7 +1,7 @@
 package com.task.spribetask.converter;
 
-import com.task.spribetask.dto.external.APIResponse;
 import com.task.spribetask.entity.CurrencyRatesEntity;
+import com.task.spribetask.rates.BaseRates;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.stereotype.Component;
 
@@ -12,22 +12,19 @@ import java.util.HashMap;
 import java.util.TimeZone;
 
 @Component
-public class APIResponseToCurrencyRatesEntityConverter implements Converter<APIResponse, CurrencyRatesEntity> {
+public class BaseRatesToCurrencyRatesEntityConverter implements Converter<BaseRates, CurrencyRatesEntity> {
 
     @Override
-    public CurrencyRatesEntity convert(APIResponse source) {
-        if (!source.isSuccess()) {
-            return null;
-        }
+    public CurrencyRatesEntity convert(BaseRates source) {
         var currencyRatesEntity = new CurrencyRatesEntity();
 
-        currencyRatesEntity.setCurrency(source.getBase());
+        currencyRatesEntity.setCurrency(source.base());
 
-        var rateTimestamp = LocalDateTime.ofInstant(Instant.ofEpochSecond(source.getTimestamp()), TimeZone.getDefault().toZoneId());
+        var rateTimestamp = LocalDateTime.ofInstant(Instant.ofEpochSecond(source.timestamp()), TimeZone.getDefault().toZoneId());
         currencyRatesEntity.setDateTime(rateTimestamp);
 
         var newMap = new HashMap<String, BigDecimal>();
-        source.getRates().forEach((currency, rate) -> newMap.put(currency, BigDecimal.valueOf(rate)));
+        source.rates().forEach((currency, rate) -> newMap.put(currency, BigDecimal.valueOf(rate)));
         currencyRatesEntity.setRates(newMap);
 
         return currencyRatesEntity;
@@ -0,0 +1,11 @@
+package com.task.spribetask.dto;
+
+import java.time.LocalDateTime;
+
+public record CurrencyConversion(String from,
+                                 String to,
+                                 double amount,
+                                 double rate,
+                                 double result,
+                                 LocalDateTime dateTime) {
+}
@@ -0,0 +1,6 @@
+package com.task.spribetask.dto;
+
+public record CurrencyConversionRequest(String from,
+                                        String to,
+                                        double amount) {
+}
@@ -1,9 +1,13 @@
 package com.task.spribetask.dto;
 
+import com.task.spribetask.rates.RateTable;
+import io.swagger.v3.oas.annotations.media.Schema;
+
 import java.time.LocalDateTime;
 import java.util.Map;
 
 public record CurrencyRates(String currency,
                             LocalDateTime dateTime,
-                            Map<String, Double> rates) {
+                            @Schema(implementation = Map.class)
+                            RateTable rates) {
 }
@@ -0,0 +1,35 @@
+package com.task.spribetask.dto;
+
+import com.task.spribetask.rates.RateTable;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Changes of currency rates between two versions, version is taken from content hash of rates.
+ *
+ * @param since   version the changes are applied to, null if {@code rates} contains all rates (full snapshot)
+ * @param rates   added or changed rates
+ * @param removed currencies which have no rate anymore
+ */
+public record CurrencyRatesDelta(String currency,
+                                 Long since,
+                                 long version,
+                                 LocalDateTime dateTime,
+                                 @Schema(implementation = Map.class)
+                                 RateTable rates,
+                                 List<String> removed) {
+
+    public static CurrencyRatesDelta between(CurrencyRates previous, long previousVersion,
+                                             CurrencyRates current, long version) {
+        return new CurrencyRatesDelta(current.currency(), previousVersion, version, current.dateTime(),
+                current.rates().changedSince(previous.rates()), current.rates().removedSince(previous.rates()));
+    }
+
+    public static CurrencyRatesDelta full(CurrencyRates currencyRates, long version) {
+        return new CurrencyRatesDelta(currencyRates.currency(), null, version, currencyRates.dateTime(),
+                currencyRates.rates(), List.of());
+    }
+}
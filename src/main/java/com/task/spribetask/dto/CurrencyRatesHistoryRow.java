@@ -0,0 +1,15 @@
+package com.task.spribetask.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of one historical snapshot, rates are already JSON text prepared by DB.
+ */
+public interface CurrencyRatesHistoryRow {
+
+    Long getId();
+
+    LocalDateTime getDateTime();
+
+    String getRates();
+}
@@ -0,0 +1,18 @@
+package com.task.spribetask.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * @param dateTime start of the hour or day
+ */
+public record CurrencyRatesOhlc(LocalDateTime dateTime,
+                                BigDecimal open,
+                                BigDecimal high,
+                                BigDecimal low,
+                                BigDecimal close) {
+
+    public static CurrencyRatesOhlc of(CurrencyRatesOhlcRow row) {
+        return new CurrencyRatesOhlc(row.getBucket(), row.getOpen(), row.getHigh(), row.getLow(), row.getClose());
+    }
+}
@@ -0,0 +1,20 @@
+package com.task.spribetask.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Projection of one rolled up hour or day of a currency pair.
+ */
+public interface CurrencyRatesOhlcRow {
+
+    LocalDateTime getBucket();
+
+    BigDecimal getOpen();
+
+    BigDecimal getHigh();
+
+    BigDecimal getLow();
+
+    BigDecimal getClose();
+}
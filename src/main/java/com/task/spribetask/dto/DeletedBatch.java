@@ -0,0 +1,14 @@
+package com.task.spribetask.dto;
+
+/**
+ * Result of one retention delete batch.
+ */
+public interface DeletedBatch {
+
+    Long getRows();
+
+    /**
+     * Size of deleted tuples, space is reused by new rows after vacuum, but not returned to OS.
+     */
+    Long getBytes();
+}
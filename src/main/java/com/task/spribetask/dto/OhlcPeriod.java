@@ -0,0 +1,9 @@
+package com.task.spribetask.dto;
+
+/**
+ * Length of one OHLC row, names are stored in currencies_rates_ohlc.period.
+ */
+public enum OhlcPeriod {
+    HOUR,
+    DAY
+}
@@ -13,7 +13,6 @@ import java.util.Map;
 public final class APIResponse {
     private boolean success;
     private long timestamp;
-    @Setter
     private String base;
     private LocalDate date;
     private Map<String, Double> rates;
@@ -20,9 +20,11 @@ import java.util.Objects;
 public class CurrencyRatesEntity {
 
     private static final String CURRENCIES_RATES_ID_SEQ = "currencies_rates_id_seq";
+    // has to be equal to sequence increment, ids are taken from DB once per 50 inserted rows
+    private static final int CURRENCIES_RATES_ID_ALLOCATION_SIZE = 50;
 
     @Id
-    @SequenceGenerator(name = CURRENCIES_RATES_ID_SEQ, sequenceName = CURRENCIES_RATES_ID_SEQ, allocationSize = 1)
+    @SequenceGenerator(name = CURRENCIES_RATES_ID_SEQ, sequenceName = CURRENCIES_RATES_ID_SEQ, allocationSize = CURRENCIES_RATES_ID_ALLOCATION_SIZE)
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = CURRENCIES_RATES_ID_SEQ)
     @Column(name = "id")
     private Long id;
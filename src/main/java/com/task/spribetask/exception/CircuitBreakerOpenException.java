@@ -0,0 +1,8 @@
+package com.task.spribetask.exception;
+
+public class CircuitBreakerOpenException extends ExternalAPIException {
+
+    public CircuitBreakerOpenException() {
+        super("External API circuit breaker is open", false);
+    }
+}
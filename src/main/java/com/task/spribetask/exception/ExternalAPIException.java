@@ -0,0 +1,22 @@
+package com.task.spribetask.exception;
+
+import lombok.Getter;
+
+@Getter
+public class ExternalAPIException extends RuntimeException {
+
+    /**
+     * true if the same call may succeed later (server errors, throttling), false for client errors
+     */
+    private final boolean retryable;
+
+    public ExternalAPIException(String message, boolean retryable) {
+        super(message);
+        this.retryable = retryable;
+    }
+
+    public ExternalAPIException(String message, Throwable cause) {
+        super(message, cause);
+        this.retryable = false;
+    }
+}
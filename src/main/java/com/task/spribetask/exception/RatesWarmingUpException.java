@@ -0,0 +1,8 @@
+package com.task.spribetask.exception;
+
+public class RatesWarmingUpException extends CurrencyServiceException {
+
+    public RatesWarmingUpException() {
+        super("Rates are warming up", "Rates are being loaded after startup, retry later");
+    }
+}
@@ -0,0 +1,109 @@
+package com.task.spribetask.external;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Opens after {@code failureThreshold} consecutive failed calls and rejects calls while open. When open time is over,
+ * exactly one probe call is let through (half-open state): success closes the breaker, failure opens it again for
+ * twice longer time (up to {@code maxOpenDuration}), so a long outage is probed less and less often.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final Clock clock;
+    private final int failureThreshold;
+    private final Duration initialOpenDuration;
+    private final Duration maxOpenDuration;
+
+    // ReentrantLock instead of synchronized: logging under the lock does not pin virtual thread to its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    // written under lock, read without it by freshness checks
+    private volatile State state = State.CLOSED;
+    private int consecutiveFailures;
+    private int consecutiveOpenings;
+    private long openUntil;
+
+    public CircuitBreaker(Clock clock, int failureThreshold, Duration initialOpenDuration, Duration maxOpenDuration) {
+        this.clock = clock;
+        this.failureThreshold = failureThreshold;
+        this.initialOpenDuration = initialOpenDuration;
+        this.maxOpenDuration = maxOpenDuration;
+    }
+
+    /**
+     * @return true if call is allowed, every allowed call has to be completed with {@link #onSuccess()} or
+     * {@link #onFailure()}
+     */
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            return switch (state) {
+                case CLOSED -> true;
+                // probe is in flight
+                case HALF_OPEN -> false;
+                case OPEN -> {
+                    if (clock.millis() < openUntil) {
+                        yield false;
+                    }
+                    log.info("Circuit breaker is half-open, probing external API");
+                    state = State.HALF_OPEN;
+                    yield true;
+                }
+            };
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess() {
+        lock.lock();
+        try {
+            if (state != State.CLOSED) {
+                log.info("Circuit breaker is closed");
+            }
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            consecutiveOpenings = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onFailure() {
+        lock.lock();
+        try {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+                open();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isClosed() {
+        return state == State.CLOSED;
+    }
+
+    private void open() {
+        consecutiveOpenings++;
+        var openDuration = Math.min(maxOpenDuration.toMillis(),
+                initialOpenDuration.toMillis() << Math.min(consecutiveOpenings - 1, 20));
+        // jitter spreads probes of several instances, so recovered API is not hit by all of them at once
+        openDuration = openDuration / 2 + ThreadLocalRandom.current().nextLong(openDuration / 2 + 1);
+        openUntil = clock.millis() + openDuration;
+        state = State.OPEN;
+        log.warn("Circuit breaker is open for {} ms after {} consecutive failures", openDuration, consecutiveFailures);
+    }
+}
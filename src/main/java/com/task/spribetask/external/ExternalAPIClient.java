@@ -1,15 +1,29 @@
 package com.task.spribetask.external;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.task.spribetask.dto.external.APIResponse;
+import com.task.spribetask.exception.CircuitBreakerOpenException;
+import com.task.spribetask.exception.ExternalAPIException;
+import com.task.spribetask.metrics.CurrencyMetrics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpStatusCodeException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 
-import java.util.Optional;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
@@ -17,24 +31,121 @@ import java.util.Optional;
 public class ExternalAPIClient {
 
     // Not using 'base' parameter to get different currencies API free plan do not support it.
-    private static final String PATH_GET_LATEST_RATES = "/latest?access_key={accessKey}";
+    private static final String PATH_GET_LATEST_RATES = "/latest";
 
+    @Value("${currency.service.url}")
+    private final String url;
     @Value("${currency.service.access.key}")
     private final String accessKey;
-    @Qualifier("currencyRestTemplate")
-    private final RestTemplate restTemplate;
+    @Value("${currency.service.request-timeout:5s}")
+    private final Duration requestTimeout;
+    @Value("${currency.service.retry.max-attempts:3}")
+    private final int maxAttempts;
+    @Value("${currency.service.retry.initial-backoff:500ms}")
+    private final Duration initialBackoff;
+    @Qualifier("currencyHttpClient")
+    private final HttpClient httpClient;
+    @Qualifier("currencyCircuitBreaker")
+    private final CircuitBreaker circuitBreaker;
+    private final ObjectMapper objectMapper;
+    private final CurrencyMetrics currencyMetrics;
 
-    public Optional<APIResponse> getLatestRates() {
+    /**
+     * Calls '/latest' without blocking caller thread. Timeouts, connection errors, 5xx and 429 responses and empty bodies are retried
+     * with exponential backoff and jitter.
+     *
+     * Call is rejected without touching external API while circuit breaker is open.
+     *
+     * @return future completed with API response (successful or not) or exceptionally when all attempts failed
+     */
+    public CompletableFuture<APIResponse> getLatestRates() {
+        if (!circuitBreaker.tryAcquire()) {
+            currencyMetrics.incrementExternalCallRejected();
+            return CompletableFuture.failedFuture(new CircuitBreakerOpenException());
+        }
+        var startNanos = System.nanoTime();
+        CompletableFuture<APIResponse> latestRates;
+        try {
+            latestRates = getLatestRates(latestRatesRequest(), 1);
+        } catch (RuntimeException e) {
+            // invalid url or rejected sendAsync, the acquired call still has to be reported to circuit breaker
+            latestRates = CompletableFuture.failedFuture(e);
+        }
+        return latestRates
+                .whenComplete((apiResponse, throwable) -> {
+                    var success = throwable == null && apiResponse != null && apiResponse.isSuccess();
+                    currencyMetrics.recordExternalCall(startNanos, success);
+                    if (success) {
+                        circuitBreaker.onSuccess();
+                    } else {
+                        circuitBreaker.onFailure();
+                    }
+                });
+    }
+
+    private HttpRequest latestRatesRequest() {
+        return HttpRequest.newBuilder(UriComponentsBuilder.fromHttpUrl(url)
+                        .path(PATH_GET_LATEST_RATES)
+                        .queryParam("access_key", accessKey)
+                        .build()
+                        .toUri())
+                .timeout(requestTimeout)
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .GET()
+                .build();
+    }
+
+    private CompletableFuture<APIResponse> getLatestRates(HttpRequest request, int attempt) {
+        log.info("Calling '/latest', attempt {}", attempt);
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(this::toAPIResponse)
+                .exceptionallyCompose(throwable -> {
+                    var cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                    if (attempt >= maxAttempts || !isRetryable(cause)) {
+                        log.error("Error while calling '/latest': {}", cause.getMessage());
+                        return CompletableFuture.failedFuture(cause);
+                    }
+                    var backoff = backoff(attempt);
+                    log.warn("Error while calling '/latest': {}, retrying in {} ms", cause.getMessage(), backoff);
+                    return CompletableFuture.runAsync(() -> {}, CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS))
+                            .thenCompose(ignored -> getLatestRates(request, attempt + 1));
+                });
+    }
+
+    private APIResponse toAPIResponse(HttpResponse<byte[]> response) {
+        var status = HttpStatus.resolve(response.statusCode());
+        if (status == null || !status.is2xxSuccessful()) {
+            throw new ExternalAPIException("'/latest' responded with status " + response.statusCode(),
+                    status == null || status.is5xxServerError() || status == HttpStatus.TOO_MANY_REQUESTS);
+        }
         try {
-            log.info("Calling '/latest'");
-            var apiResponseOptional = Optional.ofNullable(restTemplate.getForObject(PATH_GET_LATEST_RATES, APIResponse.class, accessKey));
-            apiResponseOptional
-                    .filter(apiResponse -> !apiResponse.isSuccess())
-                    .ifPresent(apiResponse -> log.error("Error: " + apiResponse.getError()));
-            return apiResponseOptional;
-        } catch (HttpStatusCodeException e) {
-            log.error("Error while calling '/latest': {}", e.getMessage());
-            return Optional.empty();
+            var body = response.body();
+            var apiResponse = body.length == 0 ? null : objectMapper.readValue(body, APIResponse.class);
+            if (apiResponse == null) {
+                // empty body or 'null' JSON, retried like a server error and reported to circuit breaker as failure
+                throw new ExternalAPIException("'/latest' responded with empty body", true);
+            }
+            if (!apiResponse.isSuccess()) {
+                log.error("Error: " + apiResponse.getError());
+            }
+            return apiResponse;
+        } catch (IOException e) {
+            throw new ExternalAPIException("Can't read '/latest' response", e);
         }
     }
+
+    private static boolean isRetryable(Throwable throwable) {
+        // HttpTimeoutException and HttpConnectTimeoutException are IOException as well
+        return throwable instanceof IOException
+                || throwable instanceof ExternalAPIException externalAPIException && externalAPIException.isRetryable();
+    }
+
+    /**
+     * Exponential backoff with jitter: random value between half and full of initialBackoff * 2^(attempt - 1),
+     * so clients failed at the same moment don't retry all together.
+     */
+    private long backoff(int attempt) {
+        var exponentialBackoff = initialBackoff.toMillis() << (attempt - 1);
+        return exponentialBackoff / 2 + ThreadLocalRandom.current().nextLong(exponentialBackoff / 2 + 1);
+    }
 }
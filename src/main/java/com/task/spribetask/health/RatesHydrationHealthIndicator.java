@@ -0,0 +1,25 @@
+package com.task.spribetask.health;
+
+import com.task.spribetask.service.CurrencyService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Node is not ready until rates are loaded, with 'currency.startup.async' it takes a moment after the context started.
+ */
+@Component
+@RequiredArgsConstructor
+public class RatesHydrationHealthIndicator implements HealthIndicator {
+
+    private final CurrencyService currencyService;
+
+    @Override
+    public Health health() {
+        if (currencyService.isHydrated()) {
+            return Health.up().build();
+        }
+        return Health.outOfService().withDetail("reason", "Rates are being loaded").build();
+    }
+}
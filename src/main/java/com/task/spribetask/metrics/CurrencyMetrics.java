@@ -0,0 +1,155 @@
+package com.task.spribetask.metrics;
+
+import com.task.spribetask.service.CurrencyRatesSnapshot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * All meters are created once here, so recording on hot paths is a plain counter increment or timer update
+ * without tag lookups or allocations.
+ */
+@Component
+public class CurrencyMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Timer externalCallSuccess;
+    private final Timer externalCallFailure;
+    private final Counter externalCallRejected;
+    private final Timer refreshConversion;
+    private final Timer refreshSave;
+    private final Counter latestHit;
+    private final Counter latestMiss;
+    private final Counter latestNotModified;
+    private final Counter ratesRetentionRows;
+    private final Counter ratesRetentionBytes;
+    private final Counter ohlcRetentionRows;
+    private final Counter ohlcRetentionBytes;
+
+    public CurrencyMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.externalCallSuccess = externalCallTimer(meterRegistry, "success");
+        this.externalCallFailure = externalCallTimer(meterRegistry, "failure");
+        this.externalCallRejected = Counter.builder("currency.external.calls.rejected")
+                .description("External API calls rejected by open circuit breaker")
+                .register(meterRegistry);
+        this.refreshConversion = Timer.builder("currency.refresh.conversion")
+                .description("Conversion of external API response to rates of all registered currencies")
+                .register(meterRegistry);
+        this.refreshSave = Timer.builder("currency.refresh.save")
+                .description("Saving rates of one refresh run to DB")
+                .register(meterRegistry);
+        this.latestHit = latestCounter(meterRegistry, "hit");
+        this.latestMiss = latestCounter(meterRegistry, "miss");
+        this.latestNotModified = latestCounter(meterRegistry, "not_modified");
+        this.ratesRetentionRows = retentionRowsCounter(meterRegistry, "currencies_rates");
+        this.ratesRetentionBytes = retentionBytesCounter(meterRegistry, "currencies_rates");
+        this.ohlcRetentionRows = retentionRowsCounter(meterRegistry, "currencies_rates_ohlc");
+        this.ohlcRetentionBytes = retentionBytesCounter(meterRegistry, "currencies_rates_ohlc");
+    }
+
+    public void recordExternalCall(long startNanos, boolean success) {
+        (success ? externalCallSuccess : externalCallFailure).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void incrementExternalCallRejected() {
+        externalCallRejected.increment();
+    }
+
+    public void recordRefreshConversion(long startNanos) {
+        refreshConversion.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRefreshSave(long startNanos) {
+        refreshSave.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void incrementLatestHit() {
+        latestHit.increment();
+    }
+
+    public void incrementLatestMiss() {
+        latestMiss.increment();
+    }
+
+    public void incrementLatestNotModified() {
+        latestNotModified.increment();
+    }
+
+    public void recordRatesRetention(long rows, long bytes) {
+        ratesRetentionRows.increment(rows);
+        ratesRetentionBytes.increment(bytes);
+    }
+
+    public void recordOhlcRetention(long rows, long bytes) {
+        ohlcRetentionRows.increment(rows);
+        ohlcRetentionBytes.increment(bytes);
+    }
+
+    /**
+     * Registers age of rates of the currency, calculated from snapshot in the map only when metrics are scraped.
+     */
+    public void registerRatesAge(String currency, Map<String, CurrencyRatesSnapshot> currencyRatesMap) {
+        TimeGauge.builder("currency.rates.age", currencyRatesMap, TimeUnit.MILLISECONDS, map -> {
+                    var currencyRatesSnapshot = map.get(currency);
+                    return currencyRatesSnapshot == null
+                            ? Double.NaN
+                            : System.currentTimeMillis() - currencyRatesSnapshot.lastModified();
+                })
+                .description("Time passed since rates timestamp of external API")
+                .tag("currency", currency)
+                .register(meterRegistry);
+    }
+
+    public void registerSchedulerQueue(ThreadPoolTaskScheduler threadPoolTaskScheduler) {
+        Gauge.builder("currency.scheduler.queue.size", threadPoolTaskScheduler, CurrencyMetrics::queueSize)
+                .description("Tasks waiting in refresh scheduler queue")
+                .register(meterRegistry);
+    }
+
+    private static double queueSize(ThreadPoolTaskScheduler threadPoolTaskScheduler) {
+        try {
+            return threadPoolTaskScheduler.getScheduledThreadPoolExecutor().getQueue().size();
+        } catch (IllegalStateException e) {
+            // scheduler is not initialized yet or already shut down
+            return Double.NaN;
+        }
+    }
+
+    private static Timer externalCallTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("currency.external.calls")
+                .description("External API '/latest' calls including retries")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static Counter latestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("currency.latest.requests")
+                .description("Lookups of in-memory rates snapshot by '/currency/latest'")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Counter retentionRowsCounter(MeterRegistry meterRegistry, String table) {
+        return Counter.builder("currency.retention.deleted.rows")
+                .description("History rows deleted in batches by retention, rows of dropped partitions are not counted")
+                .tag("table", table)
+                .register(meterRegistry);
+    }
+
+    private static Counter retentionBytesCounter(MeterRegistry meterRegistry, String table) {
+        return Counter.builder("currency.retention.reclaimed.bytes")
+                .description("Size of dropped partitions and deleted rows")
+                .baseUnit("bytes")
+                .tag("table", table)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,24 @@
+package com.task.spribetask.rates;
+
+import java.util.Optional;
+
+/**
+ * Rates for one base currency taken from a single external API response.
+ *
+ * @param timestamp epoch seconds of the external API response
+ */
+public record BaseRates(String base,
+                        long timestamp,
+                        RateTable rates) {
+
+    /**
+     * @return cross rates for the given base calculated from this snapshot, empty if there is no rate for it
+     */
+    public Optional<BaseRates> rebase(String currency) {
+        if (base.equals(currency)) {
+            return Optional.of(this);
+        }
+        return rates.rebase(currency)
+                .map(crossRates -> new BaseRates(currency, timestamp, crossRates));
+    }
+}
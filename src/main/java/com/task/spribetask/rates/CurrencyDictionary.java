@@ -0,0 +1,57 @@
+package com.task.spribetask.rates;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Application wide dictionary of currency codes. Each code gets an ordinal which is used as index in rate vectors.
+ * Codes are only added (never removed), so ordinals are stable for the whole application lifetime.
+ * Only codes coming from external API or DB should be interned, request input is looked up with {@link #ordinal(String)}.
+ */
+public final class CurrencyDictionary {
+
+    private static final CurrencyDictionary SHARED = new CurrencyDictionary();
+
+    private final ConcurrentHashMap<String, Integer> ordinals = new ConcurrentHashMap<>();
+    private volatile String[] codes = new String[0];
+
+    public static CurrencyDictionary shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return ordinal of the currency code or -1 if code is unknown
+     */
+    public int ordinal(String code) {
+        var ordinal = ordinals.get(code);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    public int intern(String code) {
+        var ordinal = ordinals.get(code);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        synchronized (this) {
+            ordinal = ordinals.get(code);
+            if (ordinal != null) {
+                return ordinal;
+            }
+            var newOrdinal = codes.length;
+            var newCodes = Arrays.copyOf(codes, newOrdinal + 1);
+            newCodes[newOrdinal] = code;
+            // code has to be visible before its ordinal is published
+            codes = newCodes;
+            ordinals.put(code, newOrdinal);
+            return newOrdinal;
+        }
+    }
+
+    public String code(int ordinal) {
+        return codes[ordinal];
+    }
+
+    public int size() {
+        return codes.length;
+    }
+}
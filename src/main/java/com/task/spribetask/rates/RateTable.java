@@ -0,0 +1,158 @@
+package com.task.spribetask.rates;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * Immutable dense vector of rates indexed by {@link CurrencyDictionary} ordinal, {@code NaN} means there is no rate.
+ * Replaces {@code Map<String, Double>} to avoid boxed values and per-base map entries, in JSON it is still an object.
+ */
+@JsonSerialize(using = RateTableSerializer.class)
+public final class RateTable {
+
+    private static final CurrencyDictionary DICTIONARY = CurrencyDictionary.shared();
+
+    private final double[] rates;
+    private final int size;
+
+    private RateTable(double[] rates) {
+        this.rates = rates;
+        var count = 0;
+        for (double rate : rates) {
+            if (!Double.isNaN(rate)) {
+                count++;
+            }
+        }
+        this.size = count;
+    }
+
+    public static RateTable of(Map<String, ? extends Number> rates) {
+        var ordinals = new int[rates.size()];
+        var values = new double[rates.size()];
+        var i = 0;
+        for (var entry : rates.entrySet()) {
+            ordinals[i] = DICTIONARY.intern(entry.getKey());
+            values[i] = entry.getValue().doubleValue();
+            i++;
+        }
+        var vector = emptyVector(DICTIONARY.size());
+        for (int j = 0; j < ordinals.length; j++) {
+            vector[ordinals[j]] = values[j];
+        }
+        return new RateTable(vector);
+    }
+
+    public double rate(int ordinal) {
+        return ordinal >= 0 && ordinal < rates.length ? rates[ordinal] : Double.NaN;
+    }
+
+    public double rate(String currency) {
+        return rate(DICTIONARY.ordinal(currency));
+    }
+
+    public boolean contains(String currency) {
+        return !Double.isNaN(rate(currency));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    double[] vector() {
+        return rates;
+    }
+
+    public void forEach(ObjDoubleConsumer<String> action) {
+        for (int ordinal = 0; ordinal < rates.length; ordinal++) {
+            if (!Double.isNaN(rates[ordinal])) {
+                action.accept(DICTIONARY.code(ordinal), rates[ordinal]);
+            }
+        }
+    }
+
+    /**
+     * Calculates cross rates for another base: rate[X->Y] = rate[B->Y] / rate[B->X], where B is the base of this table.
+     *
+     * @return empty if there is no rate for the new base in this table
+     */
+    public Optional<RateTable> rebase(String currency) {
+        var divisor = rate(currency);
+        if (Double.isNaN(divisor) || divisor == 0) {
+            return Optional.empty();
+        }
+        var vector = new double[rates.length];
+        for (int ordinal = 0; ordinal < rates.length; ordinal++) {
+            vector[ordinal] = rates[ordinal] / divisor;
+        }
+        return Optional.of(new RateTable(vector));
+    }
+
+    /**
+     * @return rates which were added or changed comparing to {@code previous}
+     */
+    public RateTable changedSince(RateTable previous) {
+        var vector = emptyVector(rates.length);
+        for (int ordinal = 0; ordinal < rates.length; ordinal++) {
+            if (!Double.isNaN(rates[ordinal]) && Double.compare(rates[ordinal], previous.rate(ordinal)) != 0) {
+                vector[ordinal] = rates[ordinal];
+            }
+        }
+        return new RateTable(vector);
+    }
+
+    /**
+     * @return currencies which have rate in {@code previous}, but not in this table
+     */
+    public List<String> removedSince(RateTable previous) {
+        var removed = new ArrayList<String>();
+        previous.forEach((currency, rate) -> {
+            if (!contains(currency)) {
+                removed.add(currency);
+            }
+        });
+        return removed;
+    }
+
+    private static double[] emptyVector(int length) {
+        var vector = new double[length];
+        Arrays.fill(vector, Double.NaN);
+        return vector;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RateTable that)) return false;
+        if (size != that.size) return false;
+        var length = Math.max(rates.length, that.rates.length);
+        for (int ordinal = 0; ordinal < length; ordinal++) {
+            if (Double.compare(rate(ordinal), that.rate(ordinal)) != 0) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        var hashCode = 1;
+        for (int ordinal = 0; ordinal < rates.length; ordinal++) {
+            if (!Double.isNaN(rates[ordinal])) {
+                hashCode = 31 * hashCode + 31 * ordinal + Double.hashCode(rates[ordinal]);
+            }
+        }
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        var joiner = new StringJoiner(", ", "RateTable{", "}");
+        forEach((currency, rate) -> joiner.add(currency + "=" + rate));
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,30 @@
+package com.task.spribetask.rates;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes {@link RateTable} as JSON object of currency to rate, the same shape as {@code Map<String, Double>}.
+ */
+public class RateTableSerializer extends StdSerializer<RateTable> {
+
+    public RateTableSerializer() {
+        super(RateTable.class);
+    }
+
+    @Override
+    public void serialize(RateTable value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        var dictionary = CurrencyDictionary.shared();
+        var rates = value.vector();
+        gen.writeStartObject(value);
+        for (int ordinal = 0; ordinal < rates.length; ordinal++) {
+            if (!Double.isNaN(rates[ordinal])) {
+                gen.writeNumberField(dictionary.code(ordinal), rates[ordinal]);
+            }
+        }
+        gen.writeEndObject();
+    }
+}
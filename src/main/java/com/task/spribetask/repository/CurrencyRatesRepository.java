@@ -1,22 +1,186 @@
 package com.task.spribetask.repository;
 
+import com.task.spribetask.dto.CurrencyRatesHistoryRow;
+import com.task.spribetask.dto.CurrencyRatesOhlcRow;
+import com.task.spribetask.dto.DeletedBatch;
 import com.task.spribetask.entity.CurrencyRatesEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CurrencyRatesRepository extends JpaRepository<CurrencyRatesEntity, Long> {
 
-    @Query(value = "select distinct on (currency) * from currencies_rates order by currency, date_time desc",
-            nativeQuery = true)
+    /**
+     * Distinct currencies are found by jumping through (currency, date_time, id) index one currency at a time and
+     * the latest row is taken for each of them, so the cost depends on the number of currencies, not on history size.
+     */
+    @Query(value = """
+            with recursive currencies as (
+                (select cr.currency from currencies_rates cr order by cr.currency limit 1)
+                union all
+                select (select cr.currency from currencies_rates cr
+                        where cr.currency > c.currency
+                        order by cr.currency
+                        limit 1)
+                from currencies c
+                where c.currency is not null
+            )
+            select latest.*
+            from currencies c
+                     cross join lateral (select * from currencies_rates cr
+                                         where cr.currency = c.currency
+                                         order by cr.date_time desc, cr.id desc
+                                         limit 1) latest
+            """, nativeQuery = true)
     List<CurrencyRatesEntity> findLatestRatesForAllCurrencies();
 
-    @Query("SELECT DISTINCT cr.currency FROM CurrencyRatesEntity cr")
+    @Query(value = """
+            with recursive currencies as (
+                (select cr.currency from currencies_rates cr order by cr.currency limit 1)
+                union all
+                select (select cr.currency from currencies_rates cr
+                        where cr.currency > c.currency
+                        order by cr.currency
+                        limit 1)
+                from currencies c
+                where c.currency is not null
+            )
+            select c.currency from currencies c where c.currency is not null
+            """, nativeQuery = true)
     List<String> findDistinctCurrencies();
 
+    /**
+     * The latest row of every given currency, each one is a single probe of (currency, date_time, id) index.
+     */
+    @Query(value = """
+            select latest.*
+            from unnest(array[:currencies]) c(currency)
+                     cross join lateral (select * from currencies_rates cr
+                                         where cr.currency = c.currency
+                                         order by cr.date_time desc, cr.id desc
+                                         limit 1) latest
+            """, nativeQuery = true)
+    List<CurrencyRatesEntity> findLatestRatesForCurrencies(Collection<String> currencies);
+
     Optional<CurrencyRatesEntity> findFirstByCurrencyOrderByDateTimeDesc(String currency);
+
+    /**
+     * Keyset page of snapshots in [from, to) ordered by (date_time, id), starting after (afterDateTime, afterId).
+     */
+    @Query(value = """
+            select cr.id as id, cr.date_time as dateTime, cast(cr.rates as text) as rates
+            from currencies_rates cr
+            where cr.currency = :currency
+              and cr.date_time >= :from and cr.date_time < :to
+              and (cr.date_time, cr.id) > (:afterDateTime, :afterId)
+            order by cr.date_time, cr.id
+            limit :limit
+            """, nativeQuery = true)
+    List<CurrencyRatesHistoryRow> findHistoryPage(String currency, LocalDateTime from, LocalDateTime to,
+                                                  LocalDateTime afterDateTime, long afterId, int limit);
+
+    /**
+     * Same as {@link #findHistoryPage} but only requested symbols are taken from rates inside DB.
+     */
+    @Query(value = """
+            select cr.id as id, cr.date_time as dateTime,
+                   cast((select jsonb_object_agg(r.key, r.value)
+                         from jsonb_each(cr.rates) r
+                         where r.key in (:symbols)) as text) as rates
+            from currencies_rates cr
+            where cr.currency = :currency
+              and cr.date_time >= :from and cr.date_time < :to
+              and (cr.date_time, cr.id) > (:afterDateTime, :afterId)
+            order by cr.date_time, cr.id
+            limit :limit
+            """, nativeQuery = true)
+    List<CurrencyRatesHistoryRow> findHistoryPageForSymbols(String currency, LocalDateTime from, LocalDateTime to,
+                                                            Collection<String> symbols,
+                                                            LocalDateTime afterDateTime, long afterId, int limit);
+
+    /**
+     * Folds rates saved for given currencies at dateTime into hourly and daily OHLC rows of every symbol. Only the
+     * latest row of a currency is taken, so the same timestamp saved twice can't hit one OHLC row twice.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into currencies_rates_ohlc as o (currency, symbol, period, bucket, open, high, low, close, open_time, close_time)
+            select cr.currency, r.key, p.period, date_trunc(p.unit, cr.date_time),
+                   cast(r.value as numeric), cast(r.value as numeric), cast(r.value as numeric), cast(r.value as numeric),
+                   cr.date_time, cr.date_time
+            from (select distinct on (cr.currency) cr.currency, cr.date_time, cr.rates
+                  from currencies_rates cr
+                  where cr.currency in (:currencies) and cr.date_time = :dateTime
+                  order by cr.currency, cr.id desc) cr
+                     cross join jsonb_each_text(cr.rates) r
+                     cross join (values ('HOUR', 'hour'), ('DAY', 'day')) p(period, unit)
+            on conflict (currency, symbol, period, bucket) do update
+                set open       = case when excluded.open_time < o.open_time then excluded.open else o.open end,
+                    high       = greatest(o.high, excluded.high),
+                    low        = least(o.low, excluded.low),
+                    close      = case when excluded.close_time >= o.close_time then excluded.close else o.close end,
+                    open_time  = least(o.open_time, excluded.open_time),
+                    close_time = greatest(o.close_time, excluded.close_time)
+            """, nativeQuery = true)
+    int upsertOhlc(Collection<String> currencies, LocalDateTime dateTime);
+
+    /**
+     * OHLC rows of one currency pair with bucket start in [from, to), one row per hour or day.
+     */
+    @Query(value = """
+            select o.bucket as bucket, o.open as open, o.high as high, o.low as low, o.close as close
+            from currencies_rates_ohlc o
+            where o.currency = :currency and o.symbol = :symbol and o.period = :period
+              and o.bucket >= :from and o.bucket < :to
+            order by o.bucket
+            """, nativeQuery = true)
+    List<CurrencyRatesOhlcRow> findOhlc(String currency, String symbol, String period, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Deletes up to limit rows older than cutoff, except the latest row of every currency. Each call is a short
+     * transaction, so retention never holds row locks on the whole history at once.
+     */
+    @Transactional
+    @Query(value = """
+            with deleted as (
+                delete from currencies_rates cr
+                where (cr.id, cr.date_time) in (select old.id, old.date_time
+                                                from currencies_rates old
+                                                where old.date_time < :cutoff
+                                                  and exists (select 1
+                                                              from currencies_rates newer
+                                                              where newer.currency = old.currency
+                                                                and (newer.date_time, newer.id) > (old.date_time, old.id))
+                                                limit :limit)
+                returning pg_column_size(cr.*) as size
+            )
+            select count(*) as rows, coalesce(sum(d.size), 0) as bytes from deleted d
+            """, nativeQuery = true)
+    DeletedBatch deleteRatesBefore(LocalDateTime cutoff, int limit);
+
+    /**
+     * Same as {@link #deleteRatesBefore} for OHLC rows of given period.
+     */
+    @Transactional
+    @Query(value = """
+            with deleted as (
+                delete from currencies_rates_ohlc o
+                where (o.currency, o.symbol, o.period, o.bucket) in (select old.currency, old.symbol, old.period, old.bucket
+                                                                     from currencies_rates_ohlc old
+                                                                     where old.period = :period and old.bucket < :cutoff
+                                                                     limit :limit)
+                returning pg_column_size(o.*) as size
+            )
+            select count(*) as rows, coalesce(sum(d.size), 0) as bytes from deleted d
+            """, nativeQuery = true)
+    DeletedBatch deleteOhlcBefore(String period, LocalDateTime cutoff, int limit);
 }
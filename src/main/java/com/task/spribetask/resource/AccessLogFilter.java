@@ -0,0 +1,84 @@
+package com.task.spribetask.resource;
+
+import com.task.spribetask.config.AccessLogProperties;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes one key=value line per sampled request to 'access' logger. Sample rate is configured per path
+ * (see {@link AccessLogProperties}), server errors are always written. Setting 'access' logger to DEBUG
+ * (for example with '/actuator/loggers') writes every request regardless of sample rate.
+ * Registered in {@link com.task.spribetask.config.AccessLogConfig}.
+ */
+@RequiredArgsConstructor
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("access");
+
+    private final AccessLogProperties accessLogProperties;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !accessLogProperties.enabled() || !ACCESS_LOG.isInfoEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var startNanos = System.nanoTime();
+        var sampled = ACCESS_LOG.isDebugEnabled() || isSampled(request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // streamed responses are completed later on another thread
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        log(request, response, startNanos, sampled);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                log(request, response, startNanos, sampled);
+            }
+        }
+    }
+
+    boolean isSampled(String path) {
+        var sampleRate = accessLogProperties.sampleRates().getOrDefault(path, accessLogProperties.defaultSampleRate());
+        return sampleRate >= 1.0 || sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private static void log(HttpServletRequest request, HttpServletResponse response, long startNanos, boolean sampled) {
+        var status = response.getStatus();
+        if (sampled || status >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR) {
+            ACCESS_LOG.info("method={} path={} query={} status={} durationMs={} remote={}",
+                    request.getMethod(), request.getRequestURI(), request.getQueryString(), status,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), request.getRemoteAddr());
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.task.spribetask.resource;
+
+import com.task.spribetask.dto.CurrencyRatesHistoryRow;
+import com.task.spribetask.dto.CurrencyRatesOhlc;
+import com.task.spribetask.resource.exception.ApiError;
+import com.task.spribetask.service.CurrencyRatesHistoryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+@RestController
+@RequestMapping("currency")
+@RequiredArgsConstructor
+public class CurrencyHistoryResource {
+
+    private static final byte[] EMPTY_RATES = "{}".getBytes(StandardCharsets.UTF_8);
+
+    private final CurrencyRatesHistoryService currencyRatesHistoryService;
+
+    @Operation(summary = "Get historical exchange rates for a currency in time range",
+            description = "With 'currency.retention.enabled' snapshots older than 'currency.retention.raw' (7 days by default) " +
+                    "are removed, except the latest rates of a currency, older history is available from '/currency/ohlc'.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Exchange rates snapshots ordered by time",
+                    content = { @Content(mediaType = "application/json", examples = @ExampleObject(value = """
+                            [
+                              {
+                                "dateTime": "2024-04-02T08:23:00",
+                                "rates": {
+                                  "GBP": 0.72007,
+                                  "JPY": 107.346001
+                                }
+                              }
+                            ]
+                            """)) }),
+            @ApiResponse(responseCode = "400", description = "Time range is not valid",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ApiError.class), examples = @ExampleObject(value = """
+                            {
+                              "message": "Invalid time range",
+                              "detailedMessage": "'from' has to be before 'to'",
+                              "timestamp": "2024-04-02T08:23:00"
+                            }
+                            """)) }),
+            @ApiResponse(responseCode = "500", description = "Unknown Error",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ApiError.class), examples = @ExampleObject(value = """
+                            {
+                              "message": "Unknown error",
+                              "detailedMessage": "Exception message",
+                              "timestamp": "2024-04-02T08:23:00"
+                            }
+                            """)) })
+    })
+    @GetMapping("history")
+    public ResponseEntity<StreamingResponseBody> getHistory(
+            @Parameter(description = "Currency to be retrieved") @RequestParam String currency,
+            @Parameter(description = "Start of time range (inclusive)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "End of time range (exclusive)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Comma separated symbols to be returned, all if not defined") @RequestParam(required = false, defaultValue = "") List<String> symbols) {
+        log.debug("Entering::history");
+        // validation has to be done before streaming, later the response status is already sent
+        currencyRatesHistoryService.validateRange(from, to);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(outputStream -> {
+                    outputStream.write('[');
+                    var firstPage = new AtomicBoolean(true);
+                    currencyRatesHistoryService.forEachHistoryPage(currency, from, to, symbols,
+                            page -> writePage(outputStream, page, firstPage.getAndSet(false)));
+                    outputStream.write(']');
+                });
+    }
+
+    @Operation(summary = "Get hourly or daily open/high/low/close exchange rates of a currency pair in time range",
+            description = "With 'currency.retention.enabled' hourly rows older than 'currency.retention.hourly' (90 days by default) " +
+                    "are removed, daily rows are kept.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "OHLC rows ordered by time, one per hour or day starting in time range",
+                    content = { @Content(mediaType = "application/json", examples = @ExampleObject(value = """
+                            [
+                              {
+                                "dateTime": "2024-04-02T00:00:00",
+                                "open": 0.72007,
+                                "high": 0.72311,
+                                "low": 0.71905,
+                                "close": 0.72101
+                              }
+                            ]
+                            """)) }),
+            @ApiResponse(responseCode = "400", description = "Time range or period is not valid",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ApiError.class), examples = @ExampleObject(value = """
+                            {
+                              "message": "Invalid period",
+                              "detailedMessage": "Period has to be one of [HOUR, DAY]",
+                              "timestamp": "2024-04-02T08:23:00"
+                            }
+                            """)) }),
+            @ApiResponse(responseCode = "500", description = "Unknown Error",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ApiError.class), examples = @ExampleObject(value = """
+                            {
+                              "message": "Unknown error",
+                              "detailedMessage": "Exception message",
+                              "timestamp": "2024-04-02T08:23:00"
+                            }
+                            """)) })
+    })
+    @GetMapping("ohlc")
+    public List<CurrencyRatesOhlc> getOhlc(
+            @Parameter(description = "Base currency") @RequestParam String currency,
+            @Parameter(description = "Quoted currency") @RequestParam String symbol,
+            @Parameter(description = "Length of one row: 'hour' or 'day'") @RequestParam(defaultValue = "day") String period,
+            @Parameter(description = "Start of time range (inclusive)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "End of time range (exclusive)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        log.debug("Entering::ohlc");
+        return currencyRatesHistoryService.getOhlc(currency, symbol, period, from, to);
+    }
+
+    private static void writePage(OutputStream outputStream, List<CurrencyRatesHistoryRow> page, boolean firstPage) {
+        try {
+            for (int i = 0; i < page.size(); i++) {
+                if (!firstPage || i > 0) {
+                    outputStream.write(',');
+                }
+                var row = page.get(i);
+                outputStream.write("{\"dateTime\":\"%s\",\"rates\":".formatted(
+                        row.getDateTime().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).getBytes(StandardCharsets.UTF_8));
+                // rates are JSON text already built by DB, so they are written without parsing
+                outputStream.write(row.getRates() != null ? row.getRates().getBytes(StandardCharsets.UTF_8) : EMPTY_RATES);
+                outputStream.write('}');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,21 +1,40 @@
 package com.task.spribetask.resource;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.task.spribetask.dto.CurrencyConversion;
+import com.task.spribetask.dto.CurrencyConversionRequest;
 import com.task.spribetask.dto.CurrencyRates;
+import com.task.spribetask.dto.CurrencyRatesDelta;
+import com.task.spribetask.exception.CurrencyServiceException;
+import com.task.spribetask.metrics.CurrencyMetrics;
 import com.task.spribetask.resource.exception.ApiError;
+import com.task.spribetask.service.CurrencyRatesSnapshot;
+import com.task.spribetask.service.CurrencyRatesSubscriptionService;
 import com.task.spribetask.service.CurrencyService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
 
 @Slf4j
 @RestController
@@ -23,7 +42,21 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class CurrencyResource {
 
+    private static final String GZIP = "gzip";
+    private static final String RATES_AGE = "X-Rates-Age";
+    private static final String RATES_STALE = "X-Rates-Stale";
+    private static final String RATES_VERSION = "X-Rates-Version";
+
     private final CurrencyService currencyService;
+    private final ObjectMapper objectMapper;
+    private final CurrencyMetrics currencyMetrics;
+    private final CurrencyRatesSubscriptionService currencyRatesSubscriptionService;
+    @Value("${currency.latest.batch.max-currencies:100}")
+    private final int maxBatchCurrencies;
+    @Value("${currency.convert.batch.max-conversions:100}")
+    private final int maxBatchConversions;
+    @Value("${currency.subscription.max-currencies:100}")
+    private final int maxSubscriptionCurrencies;
 
     @Operation(summary = "Get list of currencies used in application")
     @ApiResponses(value = {
@@ -44,13 +77,18 @@ public class CurrencyResource {
     })
     @GetMapping("list")
     public List<String> currenciesList() {
-        log.info("Entering::currenciesList");
+        log.debug("Entering::currenciesList");
         return currencyService.getAllCurrencies();
     }
 
     @Operation(summary = "Get exchange rate for a currency")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Exchange rate for a currency",
+                    headers = {
+                            @Header(name = RATES_AGE, description = "Seconds passed since rates timestamp of external API"),
+                            @Header(name = RATES_STALE, description = "true if rates could not be refreshed in time, the last known rates are returned"),
+                            @Header(name = RATES_VERSION, description = "Version of rates to be used as 'since' for '/currency/latest/delta'")
+                    },
                     content = { @Content(mediaType = "application/json",
                             schema = @Schema(implementation = CurrencyRates.class), examples = @ExampleObject(value = """
                             {
@@ -62,6 +100,7 @@ public class CurrencyResource {
                               }
                             }
                             """)) }),
+            @ApiResponse(responseCode = "304", description = "Rates were not changed since the version defined by If-None-Match or If-Modified-Since"),
             @ApiResponse(responseCode = "400", description = "Input currency was not found in application",
                     content = { @Content(mediaType = "application/json",
                             schema = @Schema(implementation = ApiError.class), examples = @ExampleObject(value = """
@@ -71,6 +110,15 @@ public class CurrencyResource {
                               "timestamp": "2024-04-02T08:23:00"
                             }
                             """)) }),
+            @ApiResponse(responseCode = "503", description = "Rates are still being loaded after startup, see Retry-After",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ApiError.class), examples = @ExampleObject(value = """
+                            {
+                              "message": "Rates are warming up",
+                              "detailedMessage": "Rates are being loaded after startup, retry later",
+                              "timestamp": "2024-04-02T08:23:00"
+                            }
+                            """)) }),
             @ApiResponse(responseCode = "500", description = "Unknown Error",
                     content = { @Content(mediaType = "application/json",
                             schema = @Schema(implementation = ApiError.class), examples = @ExampleObject(value = """
@@ -82,14 +130,340 @@ public class CurrencyResource {
                             """)) })
     })
     @GetMapping("latest")
-    public Optional<CurrencyRates> getLatestRate(@Parameter(description = "Currency to be retrieved") @RequestParam String currency) {
-        log.info("Entering::latest");
-        return Optional.ofNullable(currencyService.getCurrencyRate(currency));
+    public ResponseEntity<byte[]> getLatestRate(@Parameter(description = "Currency to be retrieved") @RequestParam String currency,
+                                                @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                WebRequest webRequest, HttpServletResponse httpServletResponse) {
+        log.debug("Entering::latest");
+        // counted only here, other endpoints look rates up as well, but they are not '/latest' requests
+        CurrencyRatesSnapshot currencyRatesSnapshot;
+        try {
+            currencyRatesSnapshot = currencyService.getCurrencyRatesSnapshot(currency);
+        } catch (CurrencyServiceException e) {
+            currencyMetrics.incrementLatestMiss();
+            throw e;
+        }
+        currencyMetrics.incrementLatestHit();
+        // set on servlet response, so 304 response gets them as well
+        var ratesFreshness = currencyService.getRatesFreshness(currencyRatesSnapshot);
+        httpServletResponse.setHeader(RATES_AGE, String.valueOf(ratesFreshness.ageSeconds()));
+        httpServletResponse.setHeader(RATES_STALE, String.valueOf(ratesFreshness.stale()));
+        httpServletResponse.setHeader(RATES_VERSION, String.valueOf(currencyRatesSnapshot.version()));
+        httpServletResponse.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        var gzipped = currencyRatesSnapshot.gzippedJson() != null && acceptsGzip(acceptEncoding);
+        var etag = gzipped ? currencyRatesSnapshot.gzippedEtag() : currencyRatesSnapshot.etag();
+
+        // sets 304 status together with ETag and Last-Modified headers
+        if (webRequest.checkNotModified(etag, currencyRatesSnapshot.lastModified())) {
+            currencyMetrics.incrementLatestNotModified();
+            return null;
+        }
+
+        // body is serialized once on refresh, so here we only write prepared bytes
+        var response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .lastModified(currencyRatesSnapshot.lastModified());
+        if (gzipped) {
+            return response
+                    .header(HttpHeaders.CONTENT_ENCODING, GZIP)
+                    .body(currencyRatesSnapshot.gzippedJson());
+        }
+        return response.body(currencyRatesSnapshot.json());
+    }
+
+    /**
+     * gzip is accepted when it is listed with non-zero quality, or when it is not listed and '*' has non-zero quality.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double anyQuality = null;
+        for (var coding : acceptEncoding.split(",")) {
+            var parameters = coding.split(";");
+            var name = parameters[0].trim();
+            if (name.equalsIgnoreCase(GZIP)) {
+                gzipQuality = quality(parameters);
+            } else if (name.equals("*")) {
+                anyQuality = quality(parameters);
+            }
+        }
+        var quality = gzipQuality != null ? gzipQuality : anyQuality;
+        return quality != null && quality > 0;
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            var parameter = parameters[i].trim();
+            if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    @Operation(summary = "Get changes of exchange rates for a currency since known version")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Added or changed rates since the version, " +
+                    "all rates with empty 'since' if the version is too old or unknown",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CurrencyRatesDelta.class), examples = @ExampleObject(value = """
+                            {
+                              "currency": "USD",
+                              "since": 3084231593760215,
+                              "version": 1406632398713892,
+                              "dateTime": "2024-04-02T09:23:00",
+                              "rates": {
+                                "EUR": 0.72011
+                              },
+                              "removed": []
+                            }
+                            """)) }),
+            @ApiResponse(responseCode = "400", description = "Input currency was not found in application",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ApiError.class), examples = @ExampleObject(value = """
+                            {
+                              "message": "Currency not found",
+                              "detailedMessage": "Currency was not registered or we can't retrieve rates from external API",
+                              "timestamp": "2024-04-02T08:23:00"
+                            }
+                            """)) })
+    })
+    @GetMapping("latest/delta")
+    public CurrencyRatesDelta getLatestRateDelta(@Parameter(description = "Currency to be retrieved") @RequestParam String currency,
+                                                 @Parameter(description = "Version of rates known by client, see X-Rates-Version header") @RequestParam long since) {
+        log.debug("Entering::latestDelta");
+        return currencyService.getCurrencyRatesDelta(currency, since);
+    }
+
+    @Operation(summary = "Get exchange rates for several currencies in one request")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Exchange rates by currency, not found currencies contain an error",
+                    content = { @Content(mediaType = "application/json", examples = @ExampleObject(value = """
+                            {
+                              "USD": {
+                                "currency": "USD",
+                                "dateTime": "2024-04-02T08:23:00",
+                                "rates": {
+                                  "EUR": 0.72007,
+                                  "JPY": 107.346001
+                                }
+                              },
+                              "ABC": {
+                                "message": "Currency not found",
+                                "detailedMessage": "Currency was not registered or we can't retrieve rates from external API",
+                                "timestamp": "2024-04-02T08:23:00"
+                              }
+                            }
+                            """)) }),
+            @ApiResponse(responseCode = "400", description = "More currencies are requested than allowed",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ApiError.class), examples = @ExampleObject(value = """
+                            {
+                              "message": "Too many currencies",
+                              "detailedMessage": "At most 100 currencies can be requested at once",
+                              "timestamp": "2024-04-02T08:23:00"
+                            }
+                            """)) }),
+            @ApiResponse(responseCode = "500", description = "Unknown Error",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ApiError.class), examples = @ExampleObject(value = """
+                            {
+                              "message": "Unknown error",
+                              "detailedMessage": "Exception message",
+                              "timestamp": "2024-04-02T08:23:00"
+                            }
+                            """)) })
+    })
+    @GetMapping("latest/batch")
+    public ResponseEntity<StreamingResponseBody> getLatestRates(@Parameter(description = "Comma separated currencies to be retrieved") @RequestParam List<String> currencies) {
+        log.debug("Entering::latestBatch");
+        return latestRatesBatch(currencies);
+    }
+
+    @Operation(summary = "Get exchange rates for several currencies in one request")
+    @PostMapping("latest/batch")
+    public ResponseEntity<StreamingResponseBody> postLatestRates(@io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Currencies to be retrieved") @RequestBody List<String> currencies) {
+        log.debug("Entering::latestBatch");
+        return latestRatesBatch(currencies);
+    }
+
+    private ResponseEntity<StreamingResponseBody> latestRatesBatch(List<String> currencies) {
+        var uniqueCurrencies = new LinkedHashSet<String>();
+        currencies.forEach(currency -> uniqueCurrencies.add(currency.trim()));
+        // checked before streaming, later the response status is already sent
+        if (uniqueCurrencies.size() > maxBatchCurrencies) {
+            throw new CurrencyServiceException("Too many currencies",
+                    "At most %d currencies can be requested at once".formatted(maxBatchCurrencies));
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(outputStream -> {
+                    // one JSON object is assembled from bodies prepared on refresh
+                    outputStream.write('{');
+                    var first = true;
+                    for (var currency : uniqueCurrencies) {
+                        if (!first) {
+                            outputStream.write(',');
+                        }
+                        first = false;
+                        outputStream.write(objectMapper.writeValueAsBytes(currency));
+                        outputStream.write(':');
+                        writeLatestRate(outputStream, currency);
+                    }
+                    outputStream.write('}');
+                });
+    }
+
+    private void writeLatestRate(OutputStream outputStream, String currency) throws IOException {
+        try {
+            outputStream.write(currencyService.getCurrencyRatesSnapshot(currency).json());
+        } catch (CurrencyServiceException e) {
+            outputStream.write(objectMapper.writeValueAsBytes(ApiError.of(e.getError(), e.getDetailedMessage())));
+        }
+    }
+
+    @Operation(summary = "Subscribe to exchange rates updates of several currencies",
+            description = "Current rates are sent right away as `rates` event, then every refresh is pushed as `delta` event " +
+                    "with changes since the previous event of the currency. Event id is the rates version. " +
+                    "Slow subscriber gets only the latest not delivered update of a currency, as `rates` event if it missed a delta.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream of rates events",
+                    content = { @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE, examples = @ExampleObject(value = """
+                            event:rates
+                            id:3084231593760215
+                            data:{"currency":"USD","dateTime":"2024-04-02T08:23:00","rates":{"EUR":0.72007,"GBP":0.79}}
+
+                            event:delta
+                            id:1406632398713892
+                            data:{"currency":"USD","since":3084231593760215,"version":1406632398713892,"dateTime":"2024-04-02T09:23:00","rates":{"EUR":0.72011},"removed":[]}
+                            """)) }),
+            @ApiResponse(responseCode = "400", description = "Input currency was not found in application " +
+                    "or more currencies are requested than allowed",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ApiError.class), examples = @ExampleObject(value = """
+                            {
+                              "message": "Currency not found",
+                              "detailedMessage": "Currency was not registered or we can't retrieve rates from external API",
+                              "timestamp": "2024-04-02T08:23:00"
+                            }
+                            """)) })
+    })
+    @GetMapping("subscribe")
+    public SseEmitter subscribe(@Parameter(description = "Comma separated currencies to subscribe to") @RequestParam List<String> currencies) {
+        log.debug("Entering::subscribe");
+        var uniqueCurrencies = new LinkedHashSet<String>();
+        currencies.forEach(currency -> uniqueCurrencies.add(currency.trim()));
+        if (uniqueCurrencies.size() > maxSubscriptionCurrencies) {
+            throw new CurrencyServiceException("Too many currencies",
+                    "At most %d currencies can be subscribed to at once".formatted(maxSubscriptionCurrencies));
+        }
+
+        // fails fast with 400 on unknown currency, before the stream is opened
+        var currencyRatesSnapshots = uniqueCurrencies.stream()
+                .map(currencyService::getCurrencyRatesSnapshot)
+                .toList();
+        return currencyRatesSubscriptionService.subscribe(currencyRatesSnapshots);
+    }
+
+    @Operation(summary = "Convert amount from one currency to another")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Converted amount",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CurrencyConversion.class), examples = @ExampleObject(value = """
+                            {
+                              "from": "USD",
+                              "to": "JPY",
+                              "amount": 10.0,
+                              "rate": 107.346001,
+                              "result": 1073.46001,
+                              "dateTime": "2024-04-02T08:23:00"
+                            }
+                            """)) }),
+            @ApiResponse(responseCode = "400", description = "Input currency was not found in application, there is no rate for target currency " +
+                    "or amount is negative, NaN or infinite",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ApiError.class), examples = @ExampleObject(value = """
+                            {
+                              "message": "Rate not found",
+                              "detailedMessage": "There is no rate for target currency",
+                              "timestamp": "2024-04-02T08:23:00"
+                            }
+                            """)) }),
+            @ApiResponse(responseCode = "500", description = "Unknown Error",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ApiError.class), examples = @ExampleObject(value = """
+                            {
+                              "message": "Unknown error",
+                              "detailedMessage": "Exception message",
+                              "timestamp": "2024-04-02T08:23:00"
+                            }
+                            """)) })
+    })
+    @GetMapping("convert")
+    public CurrencyConversion convert(@Parameter(description = "Currency to convert from") @RequestParam String from,
+                                      @Parameter(description = "Currency to convert to") @RequestParam String to,
+                                      @Parameter(description = "Amount to be converted, finite and non-negative") @RequestParam double amount) {
+        log.debug("Entering::convert");
+        return currencyService.convert(from, to, amount);
+    }
+
+    @Operation(summary = "Convert several amounts in one request, whole request fails if one of conversions is not possible")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Converted amounts in order of requested conversions",
+                    content = { @Content(mediaType = "application/json", examples = @ExampleObject(value = """
+                            [
+                              {
+                                "from": "USD",
+                                "to": "JPY",
+                                "amount": 10.0,
+                                "rate": 107.346001,
+                                "result": 1073.46001,
+                                "dateTime": "2024-04-02T08:23:00"
+                              }
+                            ]
+                            """)) }),
+            @ApiResponse(responseCode = "400", description = "More conversions are requested than allowed or one of conversions is not possible",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ApiError.class), examples = @ExampleObject(value = """
+                            {
+                              "message": "Too many conversions",
+                              "detailedMessage": "At most 100 conversions can be requested at once",
+                              "timestamp": "2024-04-02T08:23:00"
+                            }
+                            """)) }),
+            @ApiResponse(responseCode = "500", description = "Unknown Error",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ApiError.class), examples = @ExampleObject(value = """
+                            {
+                              "message": "Unknown error",
+                              "detailedMessage": "Exception message",
+                              "timestamp": "2024-04-02T08:23:00"
+                            }
+                            """)) })
+    })
+    @PostMapping("convert/batch")
+    public List<CurrencyConversion> convertBatch(@io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Conversions to be done") @RequestBody List<CurrencyConversionRequest> conversions) {
+        log.debug("Entering::convertBatch");
+        if (conversions.size() > maxBatchConversions) {
+            throw new CurrencyServiceException("Too many conversions",
+                    "At most %d conversions can be requested at once".formatted(maxBatchConversions));
+        }
+        return conversions.stream()
+                .map(conversion -> currencyService.convert(conversion.from(), conversion.to(), conversion.amount()))
+                .toList();
     }
 
     @Operation(summary = "Add new currency for getting exchange rates")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Currency added to application"),
+            @ApiResponse(responseCode = "200", description = "Rates of currency are being retrieved, it is registered " +
+                    "for periodic refresh once they are published; unknown currency is not registered"),
             @ApiResponse(responseCode = "400", description = "Input currency was already added to application",
                     content = { @Content(mediaType = "application/json",
                             schema = @Schema(implementation = ApiError.class), examples = @ExampleObject(value = """
@@ -111,7 +485,7 @@ public class CurrencyResource {
     })
     @PostMapping("add")
     public void addCurrency(@Parameter(description = "Currency to be added") @RequestParam String currency) {
-        log.info("Entering::addCurrency");
+        log.debug("Entering::addCurrency");
         currencyService.addCurrency(currency);
     }
 }
@@ -1,13 +1,17 @@
 package com.task.spribetask.resource.exception;
 
 import com.task.spribetask.exception.CurrencyServiceException;
+import com.task.spribetask.exception.RatesWarmingUpException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 
 @Slf4j
 @RestControllerAdvice
@@ -26,4 +30,12 @@ public class ResourceExceptionHandler {
         log.error("Error: " + e.getMessage());
         return ApiError.of(e.getError(), e.getDetailedMessage());
     }
+
+    @ExceptionHandler(RatesWarmingUpException.class)
+    public ResponseEntity<ApiError> handleRatesWarmingUpException(RatesWarmingUpException e) {
+        log.warn("Error: " + e.getMessage());
+        return ResponseEntity.status(SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(ApiError.of(e.getError(), e.getDetailedMessage()));
+    }
 }
@@ -0,0 +1,79 @@
+package com.task.spribetask.service;
+
+import com.task.spribetask.dto.CurrencyRatesHistoryRow;
+import com.task.spribetask.dto.CurrencyRatesOhlc;
+import com.task.spribetask.dto.OhlcPeriod;
+import com.task.spribetask.exception.CurrencyServiceException;
+import com.task.spribetask.repository.CurrencyRatesRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CurrencyRatesHistoryService {
+
+    private final CurrencyRatesRepository currencyRatesRepository;
+    @Value("${currency.history.page-size:500}")
+    private final int pageSize;
+
+    public void validateRange(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new CurrencyServiceException("Invalid time range", "'from' has to be before 'to'");
+        }
+    }
+
+    /**
+     * Reads history page by page using (date_time, id) keyset, so only one page is kept in memory at a time.
+     *
+     * @param symbols symbols to be taken from rates, all rates are returned if empty
+     */
+    public void forEachHistoryPage(String currency, LocalDateTime from, LocalDateTime to, Collection<String> symbols,
+                                   Consumer<List<CurrencyRatesHistoryRow>> pageConsumer) {
+        validateRange(from, to);
+        var afterDateTime = from;
+        var afterId = -1L;
+        List<CurrencyRatesHistoryRow> page;
+        do {
+            page = symbols.isEmpty()
+                    ? currencyRatesRepository.findHistoryPage(currency, from, to, afterDateTime, afterId, pageSize)
+                    : currencyRatesRepository.findHistoryPageForSymbols(currency, from, to, symbols, afterDateTime, afterId, pageSize);
+            if (!page.isEmpty()) {
+                pageConsumer.accept(page);
+                var last = page.get(page.size() - 1);
+                afterDateTime = last.getDateTime();
+                afterId = last.getId();
+            }
+        } while (page.size() == pageSize);
+    }
+
+    /**
+     * Reads pre-aggregated OHLC rows, so a year of daily data is a few hundred rows instead of every snapshot.
+     *
+     * @param period 'hour' or 'day', case insensitive
+     */
+    public List<CurrencyRatesOhlc> getOhlc(String currency, String symbol, String period, LocalDateTime from, LocalDateTime to) {
+        validateRange(from, to);
+        var ohlcPeriod = parsePeriod(period);
+        return currencyRatesRepository.findOhlc(currency, symbol, ohlcPeriod.name(), from, to).stream()
+                .map(CurrencyRatesOhlc::of)
+                .toList();
+    }
+
+    private static OhlcPeriod parsePeriod(String period) {
+        try {
+            return OhlcPeriod.valueOf(period.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new CurrencyServiceException("Invalid period", "Period has to be one of " + Arrays.toString(OhlcPeriod.values()));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.task.spribetask.service;
+
+import com.task.spribetask.cluster.LeaderElection;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * Keeps monthly partitions of currencies_rates created 'months-ahead' in advance, so they don't depend on
+ * migrations being run. Runs right after startup and then every 'interval', only on the elected node.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CurrencyRatesPartitionJob implements Runnable {
+
+    static final String CREATE_PARTITIONS_QUERY = "select create_currencies_rates_partitions(cast(? as date), cast(? as date))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LeaderElection leaderElection;
+    private final TaskScheduler taskScheduler;
+    @Value("${currency.partitions.enabled:true}")
+    private final boolean enabled;
+    @Value("${currency.partitions.interval:1d}")
+    private final Duration interval;
+    @Value("${currency.partitions.months-ahead:12}")
+    private final int monthsAhead;
+
+    @PostConstruct
+    void schedule() {
+        if (!enabled) {
+            return;
+        }
+        taskScheduler.scheduleWithFixedDelay(this, interval);
+    }
+
+    @Override
+    public void run() {
+        if (!leaderElection.isLeader()) {
+            log.debug("Partitions are created by another node, skipping this run");
+            return;
+        }
+        try {
+            createPartitions(LocalDate.now());
+        } catch (RuntimeException e) {
+            log.error("Failed to create currencies_rates partitions", e);
+        }
+    }
+
+    void createPartitions(LocalDate today) {
+        jdbcTemplate.queryForList(CREATE_PARTITIONS_QUERY, today, today.plusMonths(monthsAhead));
+        log.debug("Partitions of currencies_rates exist till {}", today.plusMonths(monthsAhead));
+    }
+}
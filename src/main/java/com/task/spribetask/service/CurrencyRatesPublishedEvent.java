@@ -0,0 +1,7 @@
+package com.task.spribetask.service;
+
+/**
+ * Published after new rates of a currency were put into in-memory map.
+ */
+public record CurrencyRatesPublishedEvent(CurrencyRatesSnapshot currencyRatesSnapshot) {
+}
@@ -0,0 +1,218 @@
+package com.task.spribetask.service;
+
+import com.task.spribetask.cluster.LeaderElection;
+import com.task.spribetask.dto.DeletedBatch;
+import com.task.spribetask.dto.OhlcPeriod;
+import com.task.spribetask.metrics.CurrencyMetrics;
+import com.task.spribetask.repository.CurrencyRatesRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Compacts rates history by retention policy: raw snapshots are kept for 'raw' period, hourly OHLC for 'hourly'
+ * period and daily OHLC forever (OHLC is rolled up when rates are saved, so it already holds downsampled history).
+ * Monthly partitions fully out of retention are detached and dropped at once, the rest is deleted in small batches.
+ * The latest rates of every currency are never removed. Runs only on the elected node, disabled by default.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CurrencyRatesRetentionJob implements Runnable {
+
+    static final String RATES_TABLE = "currencies_rates";
+    static final String OHLC_TABLE = "currencies_rates_ohlc";
+    static final String PARTITIONS_QUERY = """
+            select c.relname, i.inhdetachpending
+            from pg_inherits i
+                     join pg_class c on c.oid = i.inhrelid
+                     join pg_class p on p.oid = i.inhparent
+            where p.relname = 'currencies_rates'
+            order by c.relname
+            """;
+    // the same index skip scan as CurrencyRatesRepository.findLatestRatesForAllCurrencies, without reading rates
+    static final String LATEST_DATE_TIMES_QUERY = """
+            with recursive currencies as (
+                (select cr.currency from currencies_rates cr order by cr.currency limit 1)
+                union all
+                select (select cr.currency from currencies_rates cr
+                        where cr.currency > c.currency
+                        order by cr.currency
+                        limit 1)
+                from currencies c
+                where c.currency is not null
+            )
+            select latest.date_time
+            from currencies c
+                     cross join lateral (select cr.date_time from currencies_rates cr
+                                         where cr.currency = c.currency
+                                         order by cr.date_time desc, cr.id desc
+                                         limit 1) latest
+            """;
+    static final String PARTITION_SIZE_QUERY = "select pg_total_relation_size(cast(? as regclass))";
+    static final String DEFAULT_PARTITION_QUERY = """
+            select pt.partdefid <> 0
+            from pg_partitioned_table pt
+            where pt.partrelid = cast('currencies_rates' as regclass)
+            """;
+    // partitions created by create_currencies_rates_partitions, default partition is never dropped
+    private static final Pattern MONTHLY_PARTITION = Pattern.compile("currencies_rates_(\\d{4})_(\\d{2})");
+
+    private final CurrencyRatesRepository currencyRatesRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LeaderElection leaderElection;
+    private final TaskScheduler taskScheduler;
+    private final CurrencyMetrics currencyMetrics;
+    @Value("${currency.retention.enabled:false}")
+    private final boolean enabled;
+    @Value("${currency.retention.interval:1h}")
+    private final Duration interval;
+    @Value("${currency.retention.raw:7d}")
+    private final Duration rawRetention;
+    @Value("${currency.retention.hourly:90d}")
+    private final Duration hourlyRetention;
+    @Value("${currency.retention.batch-size:1000}")
+    private final int batchSize;
+    @Value("${currency.retention.lock-timeout:5s}")
+    private final Duration lockTimeout;
+
+    @PostConstruct
+    void schedule() {
+        if (!enabled) {
+            return;
+        }
+        taskScheduler.scheduleWithFixedDelay(this, Instant.now().plus(interval), interval);
+    }
+
+    @Override
+    public void run() {
+        if (!leaderElection.isLeader()) {
+            log.debug("Retention is done by another node, skipping this run");
+            return;
+        }
+        try {
+            compact(LocalDateTime.now()).forEach(result -> log.info(
+                    "Retention of {}: dropped {} partitions, deleted {} rows, reclaimed {} bytes",
+                    result.table(), result.droppedPartitions(), result.deletedRows(), result.reclaimedBytes()));
+        } catch (RuntimeException e) {
+            log.error("Retention run failed", e);
+        }
+    }
+
+    List<RetentionResult> compact(LocalDateTime now) {
+        var ratesResult = new RetentionResult(RATES_TABLE, 0, 0, 0);
+        var rawCutoff = now.minus(rawRetention);
+        var latestDateTimes = jdbcTemplate.queryForList(LATEST_DATE_TIMES_QUERY, LocalDateTime.class);
+        if (!latestDateTimes.isEmpty()) {
+            ratesResult = dropPartitionsBefore(rawCutoff, latestDateTimes)
+                    .plus(deleteInBatches(RATES_TABLE, limit -> currencyRatesRepository.deleteRatesBefore(rawCutoff, limit)));
+        }
+        currencyMetrics.recordRatesRetention(ratesResult.deletedRows(), ratesResult.reclaimedBytes());
+
+        var hourlyCutoff = now.minus(hourlyRetention);
+        var ohlcResult = deleteInBatches(OHLC_TABLE,
+                limit -> currencyRatesRepository.deleteOhlcBefore(OhlcPeriod.HOUR.name(), hourlyCutoff, limit));
+        currencyMetrics.recordOhlcRetention(ohlcResult.deletedRows(), ohlcResult.reclaimedBytes());
+        return List.of(ratesResult, ohlcResult);
+    }
+
+    /**
+     * @param latestDateTimes date time of the latest rates of every currency, a partition holding any of them is kept,
+     *                        so a currency which was not refreshed for longer than retention keeps its last rates
+     */
+    private RetentionResult dropPartitionsBefore(LocalDateTime cutoff, List<LocalDateTime> latestDateTimes) {
+        var result = new RetentionResult(RATES_TABLE, 0, 0, 0);
+        // Postgres doesn't allow concurrent detach while currencies_rates has default partition
+        var concurrently = !Boolean.TRUE.equals(jdbcTemplate.queryForObject(DEFAULT_PARTITION_QUERY, Boolean.class));
+        var partitions = jdbcTemplate.query(PARTITIONS_QUERY,
+                (resultSet, rowNum) -> new Partition(resultSet.getString(1), resultSet.getBoolean(2)));
+        for (var partition : partitions) {
+            var matcher = MONTHLY_PARTITION.matcher(partition.name());
+            if (!matcher.matches()) {
+                continue;
+            }
+            var partitionStart = LocalDate.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)), 1)
+                    .atStartOfDay();
+            var partitionEnd = partitionStart.plusMonths(1);
+            if (partitionEnd.isAfter(cutoff) || latestDateTimes.stream().anyMatch(latestDateTime ->
+                    !latestDateTime.isBefore(partitionStart) && latestDateTime.isBefore(partitionEnd))) {
+                continue;
+            }
+            var size = jdbcTemplate.queryForObject(PARTITION_SIZE_QUERY, Long.class, partition.name());
+            if (dropPartition(partition, concurrently)) {
+                result = result.plus(new RetentionResult(RATES_TABLE, 1, 0, size));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Partition is detached first, so only the detach touches locks of currencies_rates and the drop doesn't.
+     */
+    private boolean dropPartition(Partition partition, boolean concurrently) {
+        var detach = "alter table " + RATES_TABLE + " detach partition " + partition.name();
+        try {
+            if (partition.detachPending()) {
+                // concurrent detach of previous run was interrupted
+                jdbcTemplate.execute(detach + " finalize");
+            } else if (concurrently) {
+                // runs outside of transaction, reads and writes of currencies_rates are not blocked by it
+                jdbcTemplate.execute(detach + " concurrently");
+            } else {
+                transactionTemplate.executeWithoutResult(status -> {
+                    // detach waits for exclusive lock on currencies_rates and every new query would queue behind it,
+                    // so it gives up instead of waiting for long reads to finish
+                    jdbcTemplate.execute("set local lock_timeout = " + lockTimeout.toMillis());
+                    jdbcTemplate.execute(detach);
+                });
+            }
+            jdbcTemplate.execute("drop table " + partition.name());
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("Partition {} was not dropped, it is retried on next run: {}", partition.name(), e.getMessage());
+            return false;
+        }
+    }
+
+    private RetentionResult deleteInBatches(String table, IntFunction<DeletedBatch> deleteBatch) {
+        var result = new RetentionResult(table, 0, 0, 0);
+        DeletedBatch deletedBatch;
+        do {
+            deletedBatch = deleteBatch.apply(batchSize);
+            result = result.plus(new RetentionResult(table, 0, deletedBatch.getRows(), deletedBatch.getBytes()));
+        } while (deletedBatch.getRows() == batchSize);
+        return result;
+    }
+
+    /**
+     * @param detachPending true if concurrent detach was started but not finished
+     */
+    record Partition(String name, boolean detachPending) {
+    }
+
+    /**
+     * @param reclaimedBytes size of dropped partitions returned to OS plus size of deleted rows reused after vacuum
+     */
+    record RetentionResult(String table, int droppedPartitions, long deletedRows, long reclaimedBytes) {
+
+        RetentionResult plus(RetentionResult other) {
+            return new RetentionResult(table, droppedPartitions + other.droppedPartitions,
+                    deletedRows + other.deletedRows, reclaimedBytes + other.reclaimedBytes);
+        }
+    }
+}
@@ -1,43 +1,252 @@
 package com.task.spribetask.service;
 
+import com.task.spribetask.cluster.LeaderElection;
+import com.task.spribetask.cluster.RatesChangeNotifier;
 import com.task.spribetask.dto.CurrencyRates;
 import com.task.spribetask.dto.external.APIResponse;
 import com.task.spribetask.entity.CurrencyRatesEntity;
+import com.task.spribetask.exception.CircuitBreakerOpenException;
 import com.task.spribetask.external.ExternalAPIClient;
+import com.task.spribetask.metrics.CurrencyMetrics;
+import com.task.spribetask.rates.BaseRates;
 import com.task.spribetask.repository.CurrencyRatesRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.convert.ConversionService;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Shared refresh job: calls '/latest' once per run and calculates cross rates for every registered currency
+ * from that single response. In cluster only the elected node refreshes rates, other nodes sync them from DB.
+ */
 @Slf4j
 @RequiredArgsConstructor
 public class CurrencyRatesRetrieveTask implements Runnable {
 
-    private final String currency;
-    private final ConcurrentHashMap<String, CurrencyRates> currencyRatesMap;
+    private final Set<String> registeredCurrencies = ConcurrentHashMap.newKeySet();
+    // added currencies waiting for their first rates
+    private final Set<String> addedCurrencies = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean refreshInProgress = new AtomicBoolean();
+    // saved rates are applied both by notifications and by periodic sync
+    private final ReentrantLock savedRatesLock = new ReentrantLock();
+    private final ConcurrentHashMap<String, CurrencyRatesSnapshot> currencyRatesMap;
     private final CurrencyRatesRepository currencyRatesRepository;
     private final ConversionService conversionService;
+    private final CurrencyRatesSnapshotFactory currencyRatesSnapshotFactory;
     private final ExternalAPIClient externalAPIClient;
+    private final CurrencyMetrics currencyMetrics;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final LeaderElection leaderElection;
+    private final RatesChangeNotifier ratesChangeNotifier;
+
+    /**
+     * @return false if currency was already registered
+     */
+    public boolean register(String currency) {
+        var registered = registeredCurrencies.add(currency);
+        if (registered) {
+            currencyMetrics.registerRatesAge(currency, currencyRatesMap);
+        }
+        return registered;
+    }
+
+    /**
+     * Retrieves rates of a new currency right away. It is registered for the shared refresh only when its rates were
+     * published, so a code unknown to external API is never registered. Only the leader calls external API, so
+     * follower passes the currency to it, other nodes register the currency with its saved rates.
+     *
+     * @return false if currency was already registered or is being added
+     */
+    public boolean add(String currency) {
+        if (registeredCurrencies.contains(currency)) {
+            return false;
+        }
+        if (!leaderElection.isLeader()) {
+            if (!ratesChangeNotifier.notifyCurrencyAdded(currency)) {
+                throw new IllegalStateException("Currency %s can't be passed to the node refreshing rates".formatted(currency));
+            }
+            return true;
+        }
+        return retrieveAdded(currency);
+    }
+
+    /**
+     * Handles currency added on a follower, it is ignored by other followers.
+     */
+    public void addFromOtherNode(String currency) {
+        if (!registeredCurrencies.contains(currency) && leaderElection.isLeader()) {
+            retrieveAdded(currency);
+        }
+    }
+
+    private boolean retrieveAdded(String currency) {
+        if (!addedCurrencies.add(currency)) {
+            return false;
+        }
+        try {
+            retrieve(List.of(currency)).whenComplete((publishedCurrencies, throwable) -> {
+                addedCurrencies.remove(currency);
+                if (publishedCurrencies != null && publishedCurrencies.contains(currency)) {
+                    register(currency);
+                } else {
+                    log.warn("Currency {} was not registered, its rates were not retrieved", currency);
+                }
+            });
+        } catch (RuntimeException e) {
+            addedCurrencies.remove(currency);
+            throw e;
+        }
+        return true;
+    }
 
     @Override
     public void run() {
-        log.info("Retrieve rates for '{}'", currency);
+        if (!leaderElection.isLeader()) {
+            log.debug("Rates are refreshed by another node, skipping this run");
+            return;
+        }
+        // fixed rate runs don't wait for async calls, so a slow upstream could otherwise pile up refreshes
+        if (!refreshInProgress.compareAndSet(false, true)) {
+            log.warn("Previous refresh is still in progress, skipping this run");
+            return;
+        }
+        try {
+            retrieve(List.copyOf(registeredCurrencies))
+                    .whenComplete((ignored, throwable) -> refreshInProgress.set(false));
+        } catch (RuntimeException e) {
+            // thrown before the future exists, without reset no refresh would ever run again
+            refreshInProgress.set(false);
+            log.error("Failed to start refresh of rates", e);
+        }
+    }
+
+    /**
+     * Calls external API asynchronously, rates are saved and published on completion of the call.
+     *
+     * @return currencies whose rates were published, empty if the call failed
+     */
+    public CompletableFuture<List<String>> retrieve(Collection<String> currencies) {
+        if (currencies.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        log.info("Retrieve rates for {}", currencies);
 
-        externalAPIClient.getLatestRates()
-                .filter(APIResponse::isSuccess)
-                .ifPresentOrElse(apiResponse -> {
-                    // Setting this because API free plan do not support 'base' parameter to get different currencies
-                    apiResponse.setBase(currency);
+        return externalAPIClient.getLatestRates()
+                .thenApply(apiResponse -> Optional.of(apiResponse)
+                        .filter(APIResponse::isSuccess)
+                        .map(successfulResponse -> conversionService.convert(successfulResponse, BaseRates.class))
+                        .map(baseRates -> updateRates(currencies, baseRates))
+                        .orElseGet(() -> {
+                            log.error("Failed to retrieve currency rates for {}", currencies);
+                            return List.of();
+                        }))
+                .exceptionally(throwable -> {
+                    var cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                    if (cause instanceof CircuitBreakerOpenException) {
+                        log.warn("Skip retrieving rates for {}: {}, serving last known rates", currencies, cause.getMessage());
+                    } else {
+                        log.error("Failed to retrieve currency rates for {}", currencies, throwable);
+                    }
+                    return List.of();
+                });
+    }
+
+    /**
+     * Fallback for lost change notifications: followers don't call external API, they take the latest rates saved
+     * by the leader. Currencies added on other nodes are registered on every node, so whichever node is elected next
+     * refreshes all of them.
+     */
+    public void syncFromDatabase() {
+        if (leaderElection.isLeader()) {
+            currencyRatesRepository.findDistinctCurrencies().forEach(this::register);
+            return;
+        }
+        applyAllSavedRates();
+    }
+
+    /**
+     * Applies the latest rates saved by other nodes, only rates newer than local ones replace them.
+     */
+    public void applySavedRates(Collection<String> currencies) {
+        applySavedRates(currencyRatesRepository.findLatestRatesForCurrencies(currencies));
+    }
 
-                    var currencyRatesEntity = conversionService.convert(apiResponse, CurrencyRatesEntity.class);
-                    var currencyRates = conversionService.convert(currencyRatesEntity, CurrencyRates.class);
+    public void applyAllSavedRates() {
+        applySavedRates(currencyRatesRepository.findLatestRatesForAllCurrencies());
+    }
+
+    private void applySavedRates(List<CurrencyRatesEntity> currencyRatesEntities) {
+        savedRatesLock.lock();
+        try {
+            currencyRatesEntities.forEach(currencyRatesEntity -> {
+                var currency = currencyRatesEntity.getCurrency();
+                register(currency);
+                var previous = currencyRatesMap.get(currency);
+                if (previous != null && !currencyRatesEntity.getDateTime().isAfter(previous.currencyRates().dateTime())) {
+                    return;
+                }
+                var currencyRatesSnapshot = currencyRatesSnapshotFactory.create(
+                        conversionService.convert(currencyRatesEntity, CurrencyRates.class), previous);
+                currencyRatesMap.put(currency, currencyRatesSnapshot);
+                applicationEventPublisher.publishEvent(new CurrencyRatesPublishedEvent(currencyRatesSnapshot));
+            });
+        } finally {
+            savedRatesLock.unlock();
+        }
+    }
 
-                    currencyRatesRepository.save(currencyRatesEntity);
-                    currencyRatesMap.put(currency, currencyRates);
+    private List<String> updateRates(Collection<String> currencies, BaseRates baseRates) {
+        var conversionStartNanos = System.nanoTime();
+        var currencyRatesEntities = new ArrayList<CurrencyRatesEntity>(currencies.size());
+        var currencyRatesList = new ArrayList<CurrencyRates>(currencies.size());
+        currencies.forEach(currency -> baseRates.rebase(currency)
+                .ifPresentOrElse(currencyBaseRates -> {
+                    currencyRatesEntities.add(conversionService.convert(currencyBaseRates, CurrencyRatesEntity.class));
+                    currencyRatesList.add(conversionService.convert(currencyBaseRates, CurrencyRates.class));
+                }, () -> log.error("There is no '{}' rate in '{}' based response", currency, baseRates.base())));
 
-                }, () -> log.error("Failed to retrieve currency rates for '{}'", currency));
+        currencyMetrics.recordRefreshConversion(conversionStartNanos);
+
+        if (currencyRatesEntities.isEmpty()) {
+            return List.of();
+        }
+        // all rows of one run are written in one transaction as JDBC batch (see hibernate.jdbc.batch_size)
+        var saveStartNanos = System.nanoTime();
+        currencyRatesRepository.saveAll(currencyRatesEntities);
+        currencyMetrics.recordRefreshSave(saveStartNanos);
+        var savedCurrencies = currencyRatesList.stream().map(CurrencyRates::currency).toList();
+        // all rows of one run share the timestamp of API response
+        rollUpOhlc(savedCurrencies, currencyRatesEntities.get(0).getDateTime());
+        ratesChangeNotifier.notifyRatesSaved(savedCurrencies);
+        currencyRatesList.forEach(currencyRates -> {
+            var currencyRatesSnapshot = currencyRatesSnapshotFactory.create(currencyRates,
+                    currencyRatesMap.get(currencyRates.currency()));
+            currencyRatesMap.put(currencyRates.currency(), currencyRatesSnapshot);
+            applicationEventPublisher.publishEvent(new CurrencyRatesPublishedEvent(currencyRatesSnapshot));
+        });
+        return savedCurrencies;
+    }
 
+    /**
+     * OHLC is only an aggregate of saved rows, so its failure is logged and fresh rates are published anyway.
+     */
+    private void rollUpOhlc(Collection<String> currencies, LocalDateTime dateTime) {
+        try {
+            currencyRatesRepository.upsertOhlc(currencies, dateTime);
+        } catch (RuntimeException e) {
+            log.error("Failed to roll up OHLC for {}", currencies, e);
+        }
     }
-}
\ No newline at end of file
+}
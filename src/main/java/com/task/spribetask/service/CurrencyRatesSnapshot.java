@@ -0,0 +1,25 @@
+package com.task.spribetask.service;
+
+import com.task.spribetask.dto.CurrencyRates;
+import com.task.spribetask.dto.CurrencyRatesDelta;
+
+/**
+ * Currency rates together with their response body serialized once on refresh.
+ *
+ * @param json         UTF-8 JSON of {@link CurrencyRates}
+ * @param gzippedJson  gzip compressed {@code json}, null if compression is disabled
+ * @param etag         strong ETag of {@code json}
+ * @param gzippedEtag  strong ETag of {@code gzippedJson}, null if compression is disabled
+ * @param lastModified epoch milliseconds of {@link CurrencyRates#dateTime()}
+ * @param version      taken from content hash, so it changes whenever {@code json} changes
+ * @param delta        changes since the previous version, null if there was no previous version
+ */
+public record CurrencyRatesSnapshot(CurrencyRates currencyRates,
+                                    byte[] json,
+                                    byte[] gzippedJson,
+                                    String etag,
+                                    String gzippedEtag,
+                                    long lastModified,
+                                    long version,
+                                    CurrencyRatesDelta delta) {
+}
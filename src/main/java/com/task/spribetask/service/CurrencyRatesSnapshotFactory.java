@@ -0,0 +1,69 @@
+package com.task.spribetask.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.task.spribetask.dto.CurrencyRates;
+import com.task.spribetask.dto.CurrencyRatesDelta;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.time.ZoneId;
+import java.util.zip.GZIPOutputStream;
+
+@Component
+@RequiredArgsConstructor
+public class CurrencyRatesSnapshotFactory {
+
+    private static final int VERSION_HEX_DIGITS = 13;
+
+    private final ObjectMapper objectMapper;
+    @Value("${currency.snapshot.gzip:true}")
+    private final boolean gzipEnabled;
+
+    public CurrencyRatesSnapshot create(CurrencyRates currencyRates) {
+        return create(currencyRates, null);
+    }
+
+    /**
+     * @param previous snapshot replaced by the new one, its rates are diffed with the new rates
+     */
+    @SneakyThrows
+    public CurrencyRatesSnapshot create(CurrencyRates currencyRates, CurrencyRatesSnapshot previous) {
+        var json = objectMapper.writeValueAsBytes(currencyRates);
+        // content hash keeps ETag the same across restarts and instances for the same rates
+        var hash = DigestUtils.md5DigestAsHex(json);
+        var lastModified = currencyRates.dateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        // 52 bits of the hash, so the version is exact as JSON number in JavaScript clients too
+        var version = Long.parseLong(hash, 0, VERSION_HEX_DIGITS, 16);
+        var delta = delta(currencyRates, version, previous);
+
+        if (gzipEnabled) {
+            return new CurrencyRatesSnapshot(currencyRates, json, gzip(json),
+                    "\"%s\"".formatted(hash), "\"%s-gzip\"".formatted(hash), lastModified, version, delta);
+        }
+        return new CurrencyRatesSnapshot(currencyRates, json, null, "\"%s\"".formatted(hash), null, lastModified, version, delta);
+    }
+
+    private static CurrencyRatesDelta delta(CurrencyRates currencyRates, long version, CurrencyRatesSnapshot previous) {
+        if (previous == null) {
+            return null;
+        }
+        // the same content was published again, so the changes since the version before it are kept
+        if (previous.version() == version) {
+            return previous.delta();
+        }
+        return CurrencyRatesDelta.between(previous.currencyRates(), previous.version(), currencyRates, version);
+    }
+
+    @SneakyThrows
+    private static byte[] gzip(byte[] bytes) {
+        var outputStream = new ByteArrayOutputStream(bytes.length / 2);
+        try (var gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(bytes);
+        }
+        return outputStream.toByteArray();
+    }
+}
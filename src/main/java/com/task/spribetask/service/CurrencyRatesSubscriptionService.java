@@ -0,0 +1,192 @@
+package com.task.spribetask.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes rates of subscribed currencies to SSE clients. Each update is turned into event payload once and shared by
+ * all subscribers. Every subscriber is drained by its own virtual thread, so a slow client never delays the refresh
+ * or other clients; while it is busy only the latest not sent update per currency is kept for it (older are
+ * replaced), so memory used by a slow client is bounded by number of its currencies.
+ * <p>
+ * Subscriber gets all rates first, then only changes. Changes are sent only if they apply to the version the
+ * subscriber got last, otherwise (e.g. an update was replaced while it was busy) all rates are sent again.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CurrencyRatesSubscriptionService {
+
+    private static final String RATES_EVENT = "rates";
+    private static final String DELTA_EVENT = "delta";
+
+    private final Map<String, Set<Subscriber>> subscribersByCurrency = new ConcurrentHashMap<>();
+    private final ExecutorService senderExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ObjectMapper objectMapper;
+    @Value("${currency.subscription.timeout:30m}")
+    private final Duration subscriptionTimeout;
+
+    /**
+     * Current rates of given currencies are sent right away, later every refresh of them is pushed.
+     */
+    public SseEmitter subscribe(Collection<CurrencyRatesSnapshot> currencyRatesSnapshots) {
+        var emitter = new SseEmitter(subscriptionTimeout.toMillis());
+        var currencies = currencyRatesSnapshots.stream()
+                .map(currencyRatesSnapshot -> currencyRatesSnapshot.currencyRates().currency())
+                .toList();
+        var subscriber = new Subscriber(emitter, currencies);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(throwable -> subscriber.close());
+
+        currencies.forEach(currency -> subscribersByCurrency.compute(currency, (key, subscribers) -> {
+            var currencySubscribers = subscribers != null ? subscribers : ConcurrentHashMap.<Subscriber>newKeySet();
+            currencySubscribers.add(subscriber);
+            return currencySubscribers;
+        }));
+        currencyRatesSnapshots.forEach(currencyRatesSnapshot -> subscriber.offer(RatesUpdate.full(currencyRatesSnapshot)));
+        return emitter;
+    }
+
+    @EventListener
+    public void onCurrencyRatesPublished(CurrencyRatesPublishedEvent event) {
+        var currencyRatesSnapshot = event.currencyRatesSnapshot();
+        var subscribers = subscribersByCurrency.get(currencyRatesSnapshot.currencyRates().currency());
+        if (subscribers == null || subscribers.isEmpty()) {
+            return;
+        }
+        var ratesUpdate = RatesUpdate.of(currencyRatesSnapshot, objectMapper);
+        subscribers.forEach(subscriber -> subscriber.offer(ratesUpdate));
+    }
+
+    int subscribersCount(String currency) {
+        var subscribers = subscribersByCurrency.get(currency);
+        return subscribers == null ? 0 : subscribers.size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        senderExecutor.shutdownNow();
+    }
+
+    /**
+     * @param ratesData rates JSON already prepared by snapshot, it is not serialized again for subscribers
+     * @param since     version the delta applies to, null if there is no delta
+     * @param deltaData delta JSON serialized once for all subscribers, null if there is no delta
+     */
+    record RatesUpdate(String currency, long version, String ratesData, Long since, String deltaData) {
+
+        static RatesUpdate full(CurrencyRatesSnapshot currencyRatesSnapshot) {
+            return new RatesUpdate(currencyRatesSnapshot.currencyRates().currency(), currencyRatesSnapshot.version(),
+                    new String(currencyRatesSnapshot.json(), StandardCharsets.UTF_8), null, null);
+        }
+
+        @SneakyThrows
+        static RatesUpdate of(CurrencyRatesSnapshot currencyRatesSnapshot, ObjectMapper objectMapper) {
+            var delta = currencyRatesSnapshot.delta();
+            if (delta == null) {
+                return full(currencyRatesSnapshot);
+            }
+            return new RatesUpdate(currencyRatesSnapshot.currencyRates().currency(), currencyRatesSnapshot.version(),
+                    new String(currencyRatesSnapshot.json(), StandardCharsets.UTF_8), delta.since(),
+                    objectMapper.writeValueAsString(delta));
+        }
+
+        /**
+         * @param sentVersion version of rates the subscriber got last, null if nothing was sent yet
+         */
+        boolean isDeltaTo(Long sentVersion) {
+            return deltaData != null && since.equals(sentVersion);
+        }
+    }
+
+    private class Subscriber {
+
+        private final SseEmitter emitter;
+        private final List<String> currencies;
+        // the latest not sent update by currency
+        private final Map<String, RatesUpdate> pendingUpdates = new ConcurrentHashMap<>();
+        private final Map<String, Long> sentVersions = new ConcurrentHashMap<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, List<String> currencies) {
+            this.emitter = emitter;
+            this.currencies = currencies;
+        }
+
+        void offer(RatesUpdate ratesUpdate) {
+            if (closed) {
+                return;
+            }
+            pendingUpdates.put(ratesUpdate.currency(), ratesUpdate);
+            if (draining.compareAndSet(false, true)) {
+                senderExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                do {
+                    for (var currency : pendingUpdates.keySet()) {
+                        var ratesUpdate = pendingUpdates.remove(currency);
+                        if (ratesUpdate != null) {
+                            send(ratesUpdate);
+                        }
+                    }
+                    draining.set(false);
+                    // update could be offered after the loop, but before the flag was reset
+                } while (!pendingUpdates.isEmpty() && draining.compareAndSet(false, true));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Subscriber of {} is disconnected: {}", currencies, e.getMessage());
+                close();
+                emitter.completeWithError(e);
+            }
+        }
+
+        private void send(RatesUpdate ratesUpdate) throws IOException {
+            var sentVersion = sentVersions.get(ratesUpdate.currency());
+            if (Objects.equals(sentVersion, ratesUpdate.version())) {
+                return;
+            }
+            var event = SseEmitter.event().id(String.valueOf(ratesUpdate.version()));
+            if (ratesUpdate.isDeltaTo(sentVersion)) {
+                event.name(DELTA_EVENT).data(ratesUpdate.deltaData(), MediaType.APPLICATION_JSON);
+            } else {
+                event.name(RATES_EVENT).data(ratesUpdate.ratesData(), MediaType.APPLICATION_JSON);
+            }
+            emitter.send(event);
+            sentVersions.put(ratesUpdate.currency(), ratesUpdate.version());
+        }
+
+        void close() {
+            closed = true;
+            pendingUpdates.clear();
+            currencies.forEach(currency -> subscribersByCurrency.computeIfPresent(currency, (key, subscribers) -> {
+                subscribers.remove(this);
+                return subscribers.isEmpty() ? null : subscribers;
+            }));
+        }
+    }
+}
@@ -1,74 +1,241 @@
 package com.task.spribetask.service;
 
+import com.task.spribetask.dto.CurrencyConversion;
 import com.task.spribetask.dto.CurrencyRates;
+import com.task.spribetask.dto.CurrencyRatesDelta;
 import com.task.spribetask.exception.CurrencyServiceException;
+import com.task.spribetask.exception.RatesWarmingUpException;
+import com.task.spribetask.external.CircuitBreaker;
+import com.task.spribetask.metrics.CurrencyMetrics;
+import com.task.spribetask.rates.RateTable;
 import com.task.spribetask.repository.CurrencyRatesRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.time.ZoneId;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class CurrencyService {
 
-    private final ConcurrentHashMap<String, CurrencyRates> currencyRatesMap;
+    private static final Duration WARM_START_WRITE_DELAY = Duration.ofSeconds(5);
+    private static final Duration HYDRATION_RETRY_DELAY = Duration.ofSeconds(5);
+
+    private final AtomicBoolean warmStartWriteScheduled = new AtomicBoolean();
+    private volatile boolean hydrated;
+    private final ConcurrentHashMap<String, CurrencyRatesSnapshot> currencyRatesMap;
     private final CurrencyRatesRepository currencyRatesRepository;
     private final ConversionService conversionService;
+    private final CurrencyRatesSnapshotFactory currencyRatesSnapshotFactory;
     @Value("${currency.retrieve.interval}")
     private final Duration currencyRetrieveInterval;
     private final TaskScheduler taskScheduler;
-    private final ObjectProvider<CurrencyRatesRetrieveTask> ratesRetrieveTaskObjectProvider;
+    private final CurrencyRatesRetrieveTask currencyRatesRetrieveTask;
+    private final CircuitBreaker currencyCircuitBreaker;
+    private final CurrencyMetrics currencyMetrics;
+    @Value("${currency.cluster.sync-interval:5m}")
+    private final Duration clusterSyncInterval;
+    private final RatesWarmStartFile ratesWarmStartFile;
+    @Value("${currency.startup.async:false}")
+    private final boolean asyncStartup;
 
     public List<String> getAllCurrencies() {
         return currencyRatesMap.keySet().stream().toList();
     }
 
     public CurrencyRates getCurrencyRate(String currency) {
-        if (currencyRatesMap.containsKey(currency)) {
-            return currencyRatesMap.get(currency);
-        } else {
-            throw new CurrencyServiceException("Currency not found", "Currency was not registered or we can't retrieve rates from external API");
+        return getCurrencyRatesSnapshot(currency).currencyRates();
+    }
+
+    public CurrencyRatesSnapshot getCurrencyRatesSnapshot(String currency) {
+        var currencyRatesSnapshot = currencyRatesMap.get(currency);
+        if (currencyRatesSnapshot == null && isWarmingUp()) {
+            currencyRatesSnapshot = loadCurrencyRatesSnapshot(currency);
+        }
+        if (currencyRatesSnapshot != null) {
+            return currencyRatesSnapshot;
+        }
+        if (isWarmingUp()) {
+            throw new RatesWarmingUpException();
+        }
+        throw new CurrencyServiceException("Currency not found", "Currency was not registered or we can't retrieve rates from external API");
+    }
+
+    /**
+     * Loads one currency on first access while all rates are still being loaded.
+     */
+    private CurrencyRatesSnapshot loadCurrencyRatesSnapshot(String currency) {
+        try {
+            return currencyRatesRepository.findFirstByCurrencyOrderByDateTimeDesc(currency)
+                    .map(currencyRatesEntity -> currencyRatesMap.computeIfAbsent(currency, key ->
+                            currencyRatesSnapshotFactory.create(conversionService.convert(currencyRatesEntity, CurrencyRates.class))))
+                    .orElse(null);
+        } catch (RuntimeException e) {
+            log.debug("Failed to load rates of {} on demand: {}", currency, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return true when rates loaded on startup are in the map, see {@link #init()}
+     */
+    public boolean isHydrated() {
+        return hydrated;
+    }
+
+    // with blocking startup nothing is served before init is done
+    private boolean isWarmingUp() {
+        return asyncStartup && !hydrated;
+    }
+
+    /**
+     * Only one step of changes is kept, so client which missed more than one refresh gets all rates.
+     *
+     * @param since version of rates known by client, see {@link CurrencyRatesSnapshot#version()}
+     */
+    public CurrencyRatesDelta getCurrencyRatesDelta(String currency, long since) {
+        var currencyRatesSnapshot = getCurrencyRatesSnapshot(currency);
+        var currencyRates = currencyRatesSnapshot.currencyRates();
+        var version = currencyRatesSnapshot.version();
+        if (since == version) {
+            return new CurrencyRatesDelta(currency, since, version, currencyRates.dateTime(), RateTable.of(Map.of()), List.of());
+        }
+        var delta = currencyRatesSnapshot.delta();
+        if (delta != null && Long.valueOf(since).equals(delta.since())) {
+            return delta;
         }
+        return CurrencyRatesDelta.full(currencyRates, version);
+    }
+
+    /**
+     * The last known rates are served even if they can't be refreshed, this tells how old they are.
+     * Rates are stale when they missed two refresh intervals or when external API circuit breaker is not closed.
+     */
+    public RatesFreshness getRatesFreshness(CurrencyRatesSnapshot currencyRatesSnapshot) {
+        var age = Duration.ofMillis(Math.max(0, System.currentTimeMillis() - currencyRatesSnapshot.lastModified()));
+        var stale = age.compareTo(currencyRetrieveInterval.multipliedBy(2)) > 0 || !currencyCircuitBreaker.isClosed();
+        return new RatesFreshness(age.toSeconds(), stale);
+    }
+
+    public CurrencyConversion convert(String from, String to, double amount) {
+        if (!Double.isFinite(amount) || amount < 0) {
+            throw new CurrencyServiceException("Invalid amount", "Amount has to be a finite non-negative number");
+        }
+        var currencyRatesSnapshot = getCurrencyRatesSnapshot(from);
+        // primitive lookup by currency ordinal, nothing is boxed or copied per conversion
+        var rate = from.equals(to) ? 1.0 : currencyRatesSnapshot.currencyRates().rates().rate(to);
+        if (Double.isNaN(rate)) {
+            throw new CurrencyServiceException("Rate not found", "There is no rate for target currency");
+        }
+        return new CurrencyConversion(from, to, amount, rate, amount * rate, currencyRatesSnapshot.currencyRates().dateTime());
     }
 
     public void addCurrency(String currency) {
-        if (currencyRatesMap.containsKey(currency)) {
+        // new currency gets its first rates right away instead of waiting for the next shared run and is registered
+        // only when they are published, the call is asynchronous so request thread is not blocked by external API
+        if (currencyRatesMap.containsKey(currency) || !currencyRatesRetrieveTask.add(currency)) {
             throw new CurrencyServiceException("Duplicated currency", "Currency was already registered");
-        } else {
-            taskScheduler.scheduleAtFixedRate(ratesRetrieveTaskObjectProvider.getObject(currency), currencyRetrieveInterval);
         }
     }
 
     /**
-     * This method is used for filling up in memory Map with possible data from DB and setting up schedules for existing currency
+     * One refresh publishes every currency separately, so warm start file is written once shortly after the first
+     * of them, when the whole refresh is already in the map.
+     */
+    @EventListener
+    public void onCurrencyRatesPublished(CurrencyRatesPublishedEvent event) {
+        if (ratesWarmStartFile.isEnabled() && warmStartWriteScheduled.compareAndSet(false, true)) {
+            taskScheduler.schedule(this::writeWarmStartFile, Instant.now().plus(WARM_START_WRITE_DELAY));
+        }
+    }
+
+    private void writeWarmStartFile() {
+        warmStartWriteScheduled.set(false);
+        ratesWarmStartFile.write(currencyRatesMap.values().stream().map(CurrencyRatesSnapshot::currencyRates).toList());
+    }
+
+    /**
+     * With 'currency.startup.async' startup doesn't wait for rates, they are loaded in background
+     * (and retried until DB is available). Until then currencies are loaded from DB one by one on first access.
      */
     public void init() {
-        var latestRatesForAllCurrencies = currencyRatesRepository.findLatestRatesForAllCurrencies();
-        if (!latestRatesForAllCurrencies.isEmpty()) {
-            log.info("Found rates from DB: initializing map");
-            latestRatesForAllCurrencies
-                    .forEach(currencyRatesEntity -> {
-                        currencyRatesMap.put(currencyRatesEntity.getCurrency(),
-                                conversionService.convert(currencyRatesEntity, CurrencyRates.class));
-
-                        taskScheduler.scheduleAtFixedRate(
-                                ratesRetrieveTaskObjectProvider.getObject(currencyRatesEntity.getCurrency()),
-                                // we need for example 1 hour interval for retrieving data,
-                                // so here we're setting start time for job depending on date_time for last currency db record
-                                currencyRatesEntity.getDateTime().plusSeconds(currencyRetrieveInterval.toSeconds()).atZone(ZoneId.systemDefault()).toInstant(),
-                                currencyRetrieveInterval);
-                    });
+        if (asyncStartup) {
+            taskScheduler.schedule(this::hydrateInBackground, Instant.now());
+        } else {
+            hydrate();
+        }
+    }
+
+    private void hydrateInBackground() {
+        try {
+            hydrate();
+        } catch (RuntimeException e) {
+            log.error("Failed to load rates, retrying in {}", HYDRATION_RETRY_DELAY, e);
+            taskScheduler.schedule(this::hydrateInBackground, Instant.now().plus(HYDRATION_RETRY_DELAY));
+        }
+    }
+
+    /**
+     * This method is used for filling up in memory Map with possible data from warm start file or DB and setting up
+     * one shared schedule for all registered currencies. Every node runs the schedule, but only the elected one calls
+     * external API, the others get saved rates by change notifications and, as a fallback, on a sync schedule.
+     */
+    private void hydrate() {
+        var firstRetrieveTime = Instant.now();
+        var initialRates = ratesWarmStartFile.read();
+        var fromWarmStartFile = !initialRates.isEmpty();
+        if (fromWarmStartFile) {
+            log.info("Found rates in warm start file: initializing map, rates from DB are applied in background");
+        } else {
+            initialRates = currencyRatesRepository.findLatestRatesForAllCurrencies().stream()
+                    .map(currencyRatesEntity -> conversionService.convert(currencyRatesEntity, CurrencyRates.class))
+                    .toList();
+            if (!initialRates.isEmpty()) {
+                log.info("Found rates from DB: initializing map");
+            }
+        }
+        if (!initialRates.isEmpty()) {
+            // change listener could already apply newer rates from DB, they are not replaced by older initial ones
+            initialRates.forEach(currencyRates -> {
+                currencyRatesMap.compute(currencyRates.currency(), (currency, current) ->
+                        current != null && !currencyRates.dateTime().isAfter(current.currencyRates().dateTime())
+                                ? current
+                                : currencyRatesSnapshotFactory.create(currencyRates, current));
+                currencyRatesRetrieveTask.register(currencyRates.currency());
+            });
+            if (fromWarmStartFile) {
+                // rates saved while this node was down replace the ones from the file
+                taskScheduler.schedule(currencyRatesRetrieveTask::applyAllSavedRates, Instant.now());
+            }
+
+            // we need for example 1 hour interval for retrieving data,
+            // so here we're setting start time for job depending on date_time of the oldest currency record
+            firstRetrieveTime = initialRates.stream()
+                    .map(CurrencyRates::dateTime)
+                    .min(Comparator.naturalOrder())
+                    .orElseThrow()
+                    .plusSeconds(currencyRetrieveInterval.toSeconds())
+                    .atZone(ZoneId.systemDefault())
+                    .toInstant();
         }
+        taskScheduler.scheduleAtFixedRate(currencyRatesRetrieveTask, firstRetrieveTime, currencyRetrieveInterval);
+        taskScheduler.scheduleWithFixedDelay(currencyRatesRetrieveTask::syncFromDatabase,
+                Instant.now().plus(clusterSyncInterval), clusterSyncInterval);
+        hydrated = true;
+        log.info("Rates of {} currencies are loaded", currencyRatesMap.size());
     }
 
 }
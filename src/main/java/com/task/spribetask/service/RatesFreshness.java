@@ -0,0 +1,8 @@
+package com.task.spribetask.service;
+
+/**
+ * @param ageSeconds seconds passed since rates timestamp of external API
+ * @param stale      true if rates were not refreshed in time or external API is not available at the moment
+ */
+public record RatesFreshness(long ageSeconds, boolean stale) {
+}
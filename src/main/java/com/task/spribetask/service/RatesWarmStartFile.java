@@ -0,0 +1,155 @@
+package com.task.spribetask.service;
+
+import com.task.spribetask.dto.CurrencyRates;
+import com.task.spribetask.rates.RateTable;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Compact binary copy of in memory rates on local disk, so a restarted node serves the last known rates before
+ * it has read anything from DB. Layout (big-endian):
+ * <pre>
+ * int magic, int format version,
+ * int symbols count, symbols: byte length + ASCII code,
+ * int currencies count, currencies: short symbol index, long epoch second (UTC), int nano,
+ *                                   int rates count, rates: short symbol index + double rate
+ * </pre>
+ * Currency codes are stored once in the symbols table, because ordinals of {@link RateTable} differ between runs.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RatesWarmStartFile {
+
+    private static final int MAGIC = 0x52415445;
+    private static final int FORMAT_VERSION = 1;
+
+    @Value("${currency.warm-start.enabled:true}")
+    private final boolean enabled;
+    @Value("${currency.warm-start.file:data/rates.bin}")
+    private final Path file;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return empty list if the file is disabled, missing or not readable, DB is the source of rates then
+     */
+    public List<CurrencyRates> read() {
+        if (!enabled || !Files.isRegularFile(file)) {
+            return List.of();
+        }
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer);
+        } catch (IOException | RuntimeException e) {
+            // corrupted or truncated file is not fatal
+            log.warn("Failed to read warm start file {}, rates are loaded from DB: {}", file, e.toString());
+            return List.of();
+        }
+    }
+
+    /**
+     * File is written to a temporary file first and moved over the old one, so readers never see a partial file.
+     */
+    public void write(Collection<CurrencyRates> currencyRatesList) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            var absoluteFile = file.toAbsolutePath();
+            Files.createDirectories(absoluteFile.getParent());
+            var temporaryFile = Files.createTempFile(absoluteFile.getParent(), absoluteFile.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temporaryFile, serialize(currencyRatesList));
+                Files.move(temporaryFile, absoluteFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+            log.debug("Rates of {} currencies are written to warm start file {}", currencyRatesList.size(), file);
+        } catch (IOException e) {
+            log.warn("Failed to write warm start file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static List<CurrencyRates> read(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            throw new IllegalArgumentException("unknown file format");
+        }
+        var symbols = new String[buffer.getInt()];
+        for (int i = 0; i < symbols.length; i++) {
+            var code = new byte[buffer.get()];
+            buffer.get(code);
+            symbols[i] = new String(code, StandardCharsets.US_ASCII);
+        }
+        var currenciesCount = buffer.getInt();
+        var currencyRatesList = new ArrayList<CurrencyRates>(currenciesCount);
+        for (int i = 0; i < currenciesCount; i++) {
+            var currency = symbols[buffer.getShort()];
+            var dateTime = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+            var ratesCount = buffer.getInt();
+            var rates = new LinkedHashMap<String, Double>(ratesCount * 2);
+            for (int j = 0; j < ratesCount; j++) {
+                rates.put(symbols[buffer.getShort()], buffer.getDouble());
+            }
+            currencyRatesList.add(new CurrencyRates(currency, dateTime, RateTable.of(rates)));
+        }
+        return currencyRatesList;
+    }
+
+    private static byte[] serialize(Collection<CurrencyRates> currencyRatesList) throws IOException {
+        var symbols = new LinkedHashMap<String, Integer>();
+        currencyRatesList.forEach(currencyRates -> {
+            symbols.putIfAbsent(currencyRates.currency(), symbols.size());
+            currencyRates.rates().forEach((currency, rate) -> symbols.putIfAbsent(currency, symbols.size()));
+        });
+
+        var outputStream = new ByteArrayOutputStream();
+        var dataOutputStream = new DataOutputStream(outputStream);
+        dataOutputStream.writeInt(MAGIC);
+        dataOutputStream.writeInt(FORMAT_VERSION);
+        dataOutputStream.writeInt(symbols.size());
+        for (var symbol : symbols.keySet()) {
+            var code = symbol.getBytes(StandardCharsets.US_ASCII);
+            dataOutputStream.writeByte(code.length);
+            dataOutputStream.write(code);
+        }
+        dataOutputStream.writeInt(currencyRatesList.size());
+        for (var currencyRates : currencyRatesList) {
+            dataOutputStream.writeShort(symbols.get(currencyRates.currency()));
+            dataOutputStream.writeLong(currencyRates.dateTime().toEpochSecond(ZoneOffset.UTC));
+            dataOutputStream.writeInt(currencyRates.dateTime().getNano());
+            dataOutputStream.writeInt(currencyRates.rates().size());
+            currencyRates.rates().forEach((currency, rate) -> writeRate(dataOutputStream, symbols.get(currency), rate));
+        }
+        dataOutputStream.flush();
+        return outputStream.toByteArray();
+    }
+
+    @SneakyThrows
+    private static void writeRate(DataOutputStream dataOutputStream, int symbolIndex, double rate) {
+        dataOutputStream.writeShort(symbolIndex);
+        dataOutputStream.writeDouble(rate);
+    }
+}
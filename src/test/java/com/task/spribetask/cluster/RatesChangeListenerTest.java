@@ -0,0 +1,77 @@
+package com.task.spribetask.cluster;
+
+import com.task.spribetask.service.CurrencyRatesRetrieveTask;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RatesChangeListenerTest {
+
+    private static final String TEST_NODE_ID = "node-1";
+    private static final String TEST_OTHER_NODE_ID = "node-2";
+
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private RatesChangeNotifier ratesChangeNotifier;
+    @Mock
+    private CurrencyRatesRetrieveTask currencyRatesRetrieveTask;
+
+    private RatesChangeListener ratesChangeListener;
+
+    @BeforeEach
+    void setUp() {
+        ratesChangeListener = new RatesChangeListener(dataSource, ratesChangeNotifier, currencyRatesRetrieveTask, true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        verifyNoMoreInteractions(dataSource, currencyRatesRetrieveTask);
+    }
+
+    @Test
+    void shouldApplyRatesOfNotifiedCurrencies() {
+        when(ratesChangeNotifier.getNodeId()).thenReturn(TEST_NODE_ID);
+
+        ratesChangeListener.handle(TEST_OTHER_NODE_ID + ":USD,EUR");
+
+        verify(currencyRatesRetrieveTask).applySavedRates(List.of("USD", "EUR"));
+    }
+
+    @Test
+    void shouldApplyAllRatesWhenAllCurrenciesAreNotified() {
+        when(ratesChangeNotifier.getNodeId()).thenReturn(TEST_NODE_ID);
+
+        ratesChangeListener.handle(TEST_OTHER_NODE_ID + ":" + RatesChangeNotifier.ALL_CURRENCIES);
+
+        verify(currencyRatesRetrieveTask).applyAllSavedRates();
+    }
+
+    @Test
+    void shouldPassCurrencyAddedOnOtherNodeToRetrieveTask() {
+        ratesChangeListener.handleCurrencyAdded("USD");
+
+        verify(currencyRatesRetrieveTask).addFromOtherNode("USD");
+    }
+
+    @Test
+    void shouldIgnoreOwnNotification() {
+        when(ratesChangeNotifier.getNodeId()).thenReturn(TEST_NODE_ID);
+
+        ratesChangeListener.handle(TEST_NODE_ID + ":USD");
+    }
+
+    @Test
+    void shouldIgnoreUnexpectedNotification() {
+        ratesChangeListener.handle("USD");
+    }
+}
@@ -0,0 +1,65 @@
+package com.task.spribetask.cluster;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RatesChangeNotifierTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        verifyNoMoreInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void shouldNotifyWithNodeIdAndCurrencies() {
+        var ratesChangeNotifier = new RatesChangeNotifier(jdbcTemplate, true);
+
+        ratesChangeNotifier.notifyRatesSaved(List.of("USD", "EUR"));
+
+        verify(jdbcTemplate).queryForList("select pg_notify(?, ?)", RatesChangeNotifier.CHANNEL,
+                ratesChangeNotifier.getNodeId() + ":USD,EUR");
+    }
+
+    @Test
+    void shouldNotifyAboutAllCurrenciesWhenPayloadIsTooLong() {
+        var ratesChangeNotifier = new RatesChangeNotifier(jdbcTemplate, true);
+
+        ratesChangeNotifier.notifyRatesSaved(Collections.nCopies(3000, "USD"));
+
+        verify(jdbcTemplate).queryForList("select pg_notify(?, ?)", RatesChangeNotifier.CHANNEL,
+                ratesChangeNotifier.getNodeId() + ":" + RatesChangeNotifier.ALL_CURRENCIES);
+    }
+
+    @Test
+    void shouldNotNotifyWhenDisabled() {
+        new RatesChangeNotifier(jdbcTemplate, false).notifyRatesSaved(List.of("USD"));
+    }
+
+    @Test
+    void shouldNotifyAboutAddedCurrency() {
+        var ratesChangeNotifier = new RatesChangeNotifier(jdbcTemplate, true);
+
+        assertThat(ratesChangeNotifier.notifyCurrencyAdded("USD")).isTrue();
+
+        verify(jdbcTemplate).queryForList("select pg_notify(?, ?)", RatesChangeNotifier.CURRENCY_ADDED_CHANNEL, "USD");
+    }
+
+    @Test
+    void shouldNotPassAddedCurrencyWhenDisabled() {
+        assertThat(new RatesChangeNotifier(jdbcTemplate, false).notifyCurrencyAdded("USD")).isFalse();
+    }
+}
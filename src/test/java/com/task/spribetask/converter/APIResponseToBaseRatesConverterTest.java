@@ -0,0 +1,51 @@
+package com.task.spribetask.converter;
+
+import com.task.spribetask.dto.external.APIError;
+import com.task.spribetask.dto.external.APIResponse;
+import com.task.spribetask.rates.RateTable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.apache.commons.lang3.StringUtils.EMPTY;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class APIResponseToBaseRatesConverterTest {
+
+    private static final String TEST_BASE = "EUR";
+    private static final long TEST_RATE_TIMESTAMP = Instant.now().getEpochSecond();
+    private static final LocalDate TEST_RATE_DATE = LocalDate.of(2024, 4, 2);
+    private static final Map<String, Double> TEST_RATES = Map.of("GBP", 0.72007, "USD", 1.25);
+
+    private APIResponseToBaseRatesConverter converter;
+
+    @BeforeEach
+    void setUp() {
+        converter = new APIResponseToBaseRatesConverter();
+    }
+
+    @Test
+    void shouldReturnExpectedBaseRatesWithBaseRateOnConvert() {
+        var apiResponse = new APIResponse(true, TEST_RATE_TIMESTAMP, TEST_BASE, TEST_RATE_DATE, TEST_RATES, null);
+
+        var actualBaseRates = converter.convert(apiResponse);
+
+        assertThat(actualBaseRates).isNotNull();
+        assertThat(actualBaseRates.base()).isEqualTo(TEST_BASE);
+        assertThat(actualBaseRates.timestamp()).isEqualTo(TEST_RATE_TIMESTAMP);
+        assertThat(actualBaseRates.rates()).isEqualTo(RateTable.of(Map.of("GBP", 0.72007, "USD", 1.25, TEST_BASE, 1.0)));
+    }
+
+    @Test
+    void shouldReturnNullOnConvertWhenAPIResponseIsNotSuccess() {
+        var apiResponse = new APIResponse(false, 0, null, null, null, new APIError(101, EMPTY, EMPTY));
+
+        var actualBaseRates = converter.convert(apiResponse);
+
+        assertThat(actualBaseRates).isNull();
+    }
+
+}
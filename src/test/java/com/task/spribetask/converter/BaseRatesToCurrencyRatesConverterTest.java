@@ -0,0 +1,39 @@
+package com.task.spribetask.converter;
+
+import com.task.spribetask.dto.CurrencyRates;
+import com.task.spribetask.rates.BaseRates;
+import com.task.spribetask.rates.RateTable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BaseRatesToCurrencyRatesConverterTest {
+
+    private static final String TEST_BASE = "USD";
+    private static final long TEST_RATE_TIMESTAMP =  Instant.now().getEpochSecond();
+    private static final LocalDateTime TEST_RATE_DATE_TIME = LocalDateTime.ofInstant(Instant.ofEpochSecond(TEST_RATE_TIMESTAMP), ZoneId.systemDefault());
+    private static final RateTable TEST_RATES = RateTable.of(Map.of("GBP", 0.72007));
+
+    private BaseRatesToCurrencyRatesConverter converter;
+
+    @BeforeEach
+    void setUp() {
+        converter = new BaseRatesToCurrencyRatesConverter();
+    }
+
+    @Test
+    void shouldReturnExpectedCurrencyRatesOnConvert() {
+        var baseRates = new BaseRates(TEST_BASE, TEST_RATE_TIMESTAMP, TEST_RATES);
+
+        var actualCurrencyRates = converter.convert(baseRates);
+
+        assertThat(actualCurrencyRates).isEqualTo(new CurrencyRates(TEST_BASE, TEST_RATE_DATE_TIME, TEST_RATES));
+    }
+
+}
@@ -4,6 +4,7 @@ import com.task.spribetask.dto.CurrencyRates;
 import com.task.spribetask.dto.external.APIError;
 import com.task.spribetask.dto.external.APIResponse;
 import com.task.spribetask.entity.CurrencyRatesEntity;
+import com.task.spribetask.rates.RateTable;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -23,7 +24,7 @@ class CurrencyRatesEntityToCurrencyRatesConverterTest {
     private static final long TEST_RATE_TIMESTAMP =  Instant.now().getEpochSecond();
     private static final LocalDateTime TEST_RATE_DATE_TIME = LocalDateTime.ofInstant(Instant.ofEpochSecond(TEST_RATE_TIMESTAMP), ZoneId.systemDefault());
     private static final Long TEST_ID = 1234L;
-    private static final Map<String, Double> TEST_RATES = Map.of("GBP", 0.72007);
+    private static final RateTable TEST_RATES = RateTable.of(Map.of("GBP", 0.72007));
     private static final Map<String, BigDecimal> TEST_ENTITY_RATES = Map.of("GBP", new BigDecimal("0.72007"));
 
     private CurrencyRatesEntityToCurrencyRatesConverter converter;
@@ -82,7 +83,7 @@ class CurrencyRatesEntityToCurrencyRatesConverterTest {
     }
 
     private static CurrencyRates buildCurrencyRatesWithEmptyRatesMap() {
-        return new CurrencyRates(TEST_BASE, TEST_RATE_DATE_TIME, Map.of());
+        return new CurrencyRates(TEST_BASE, TEST_RATE_DATE_TIME, RateTable.of(Map.of()));
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,104 @@
+package com.task.spribetask.external;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CircuitBreakerTest {
+
+    private static final int TEST_FAILURE_THRESHOLD = 2;
+    private static final Duration TEST_OPEN_DURATION = Duration.ofMinutes(1);
+    private static final Duration TEST_MAX_OPEN_DURATION = Duration.ofMinutes(3);
+
+    @Mock
+    private Clock clock;
+
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreaker = new CircuitBreaker(clock, TEST_FAILURE_THRESHOLD, TEST_OPEN_DURATION, TEST_MAX_OPEN_DURATION);
+    }
+
+    @Test
+    void shouldStayClosedUntilFailureThresholdIsReached() {
+        circuitBreaker.onFailure();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void shouldResetFailuresOnSuccess() {
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+
+        assertThat(circuitBreaker.isClosed()).isTrue();
+    }
+
+    @Test
+    void shouldRejectCallsWhileOpen() {
+        when(clock.millis()).thenReturn(0L);
+
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void shouldLetOnlyOneProbeThroughWhenOpenDurationIsOver() {
+        when(clock.millis()).thenReturn(0L);
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+
+        when(clock.millis()).thenReturn(TEST_OPEN_DURATION.toMillis());
+
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void shouldCloseWhenProbeSucceeded() {
+        when(clock.millis()).thenReturn(0L);
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        when(clock.millis()).thenReturn(TEST_OPEN_DURATION.toMillis());
+        circuitBreaker.tryAcquire();
+
+        circuitBreaker.onSuccess();
+
+        assertThat(circuitBreaker.isClosed()).isTrue();
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void shouldBackOffProbesWhenProbeFailed() {
+        when(clock.millis()).thenReturn(0L);
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        when(clock.millis()).thenReturn(TEST_OPEN_DURATION.toMillis());
+        circuitBreaker.tryAcquire();
+
+        circuitBreaker.onFailure();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        // second opening lasts between one and two open durations
+        when(clock.millis()).thenReturn(TEST_OPEN_DURATION.toMillis() * 2 - 1);
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+        when(clock.millis()).thenReturn(TEST_OPEN_DURATION.toMillis() * 3);
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+    }
+}
@@ -1,31 +1,40 @@
 package com.task.spribetask.external;
 
+import com.github.tomakehurst.wiremock.client.MappingBuilder;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
 import com.task.spribetask.dto.external.APIError;
 import com.task.spribetask.dto.external.APIResponse;
+import com.task.spribetask.exception.CircuitBreakerOpenException;
+import com.task.spribetask.exception.ExternalAPIException;
+import com.task.spribetask.metrics.CurrencyMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.SneakyThrows;
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.springframework.http.MediaType;
-import org.springframework.test.web.client.MockRestServiceServer;
-import org.springframework.web.client.RestTemplate;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.springframework.http.HttpMethod.GET;
-import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
-import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
-import static org.springframework.test.web.client.response.MockRestResponseCreators.withServiceUnavailable;
-import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
 
 class ExternalAPIClientTest {
 
-    private static final String PATH_GET_LATEST_RATES = "/latest?access_key=%s";
+    private static final String PATH_GET_LATEST_RATES = "/latest";
     private static final String TEST_ACCESS_KEY = "testkey";
     private static final String TEST_BASE = "USD";
     private static final long TEST_RATE_TIMESTAMP = 1519296206;
@@ -34,62 +43,169 @@ class ExternalAPIClientTest {
     private static final int TEST_CODE = 105;
     private static final String TEST_TYPE = "testtype";
     private static final String TEST_INFO = "testinfo";
+    private static final int TEST_MAX_ATTEMPTS = 3;
+    private static final Duration TEST_REQUEST_TIMEOUT = Duration.ofMillis(500);
+    private static final Duration TEST_INITIAL_BACKOFF = Duration.ofMillis(10);
 
     private static final String JSON_200_LATEST_RATES = "payload/external/200_latest_rates.json";
     private static final String JSON_200_LATEST_RATES_WITH_ERROR = "payload/external/200_latest_rates_with_error.json";
 
+    @RegisterExtension
+    static WireMockExtension wireMock = WireMockExtension.newInstance()
+            .options(wireMockConfig().dynamicPort())
+            .build();
 
-    private MockRestServiceServer server;
+    private CircuitBreaker circuitBreaker;
+    private MeterRegistry meterRegistry;
     private ExternalAPIClient client;
 
     @BeforeEach
     void setUp() {
-        RestTemplate restTemplate = new RestTemplate();
-        server = MockRestServiceServer.createServer(restTemplate);
+        circuitBreaker = new CircuitBreaker(Clock.systemUTC(), 1, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        meterRegistry = new SimpleMeterRegistry();
+        client = new ExternalAPIClient(wireMock.baseUrl(), TEST_ACCESS_KEY, TEST_REQUEST_TIMEOUT, TEST_MAX_ATTEMPTS,
+                TEST_INITIAL_BACKOFF, HttpClient.newHttpClient(), circuitBreaker, Jackson2ObjectMapperBuilder.json().build(),
+                new CurrencyMetrics(meterRegistry));
+    }
+
+    @Test
+    void shouldReturnAPIResponseOnGetLatestRates() {
+        wireMock.stubFor(latestRatesRequest().willReturn(okJson(getJson200LatestRates())));
 
-        client = new ExternalAPIClient(TEST_ACCESS_KEY, restTemplate);
+        CompletableFuture<APIResponse> latestRates = client.getLatestRates();
+
+        assertThat(latestRates).succeedsWithin(Duration.ofSeconds(5)).isEqualTo(buildExpectedApiResponse());
+        wireMock.verify(1, getRequestedFor(urlPathEqualTo(PATH_GET_LATEST_RATES)));
+        assertThat(meterRegistry.get("currency.external.calls").tag("outcome", "success").timer().count()).isEqualTo(1);
     }
 
-    @AfterEach
-    void tearDown() {
-        server.verify();
+    @Test
+    void shouldReturnAPIResponseOnGetLatestRatesWhenResponseWasNotSuccessful() {
+        wireMock.stubFor(latestRatesRequest().willReturn(okJson(getJson200LatestRatesWithError())));
+
+        CompletableFuture<APIResponse> latestRates = client.getLatestRates();
+
+        assertThat(latestRates).succeedsWithin(Duration.ofSeconds(5)).isEqualTo(buildExpectedApiResponseWithError());
+        wireMock.verify(1, getRequestedFor(urlPathEqualTo(PATH_GET_LATEST_RATES)));
     }
 
     @Test
-    void shouldReturnAPIResponseOnGetLatestRates() {
-        server.expect(requestTo(PATH_GET_LATEST_RATES.formatted(TEST_ACCESS_KEY)))
-                .andExpect(method(GET))
-                .andRespond(withSuccess(getJson200LatestRates(), MediaType.APPLICATION_JSON));
+    void shouldRetryOnGetLatestRatesWhenServiceIsTemporaryUnavailable() {
+        wireMock.stubFor(latestRatesRequest().inScenario("retry")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(serviceUnavailable())
+                .willSetStateTo("recovered"));
+        wireMock.stubFor(latestRatesRequest().inScenario("retry")
+                .whenScenarioStateIs("recovered")
+                .willReturn(okJson(getJson200LatestRates())));
+
+        CompletableFuture<APIResponse> latestRates = client.getLatestRates();
+
+        assertThat(latestRates).succeedsWithin(Duration.ofSeconds(5)).isEqualTo(buildExpectedApiResponse());
+        wireMock.verify(2, getRequestedFor(urlPathEqualTo(PATH_GET_LATEST_RATES)));
+    }
 
-        Optional<APIResponse> latestRates = client.getLatestRates();
+    @Test
+    void shouldFailOnGetLatestRatesWhenServiceIsUnavailableForAllAttempts() {
+        wireMock.stubFor(latestRatesRequest().willReturn(serviceUnavailable()));
 
-        assertThat(latestRates).isNotEmpty();
-        assertThat(latestRates.get()).isEqualTo(buildExpectedApiResponse());
+        CompletableFuture<APIResponse> latestRates = client.getLatestRates();
+
+        assertThat(latestRates).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(ExternalAPIException.class);
+        wireMock.verify(TEST_MAX_ATTEMPTS, getRequestedFor(urlPathEqualTo(PATH_GET_LATEST_RATES)));
     }
 
     @Test
-    void shouldReturnAPIResponseOnGetLatestRatesWhenResponseWasNotSuccessful() {
-        server.expect(requestTo(PATH_GET_LATEST_RATES.formatted(TEST_ACCESS_KEY)))
-                .andExpect(method(GET))
-                .andRespond(withSuccess(getJson200LatestRatesWithError(), MediaType.APPLICATION_JSON));
+    void shouldRetryOnGetLatestRatesWhenResponseBodyIsNull() {
+        wireMock.stubFor(latestRatesRequest().inScenario("retry")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(okJson("null"))
+                .willSetStateTo("recovered"));
+        wireMock.stubFor(latestRatesRequest().inScenario("retry")
+                .whenScenarioStateIs("recovered")
+                .willReturn(okJson(getJson200LatestRates())));
+
+        CompletableFuture<APIResponse> latestRates = client.getLatestRates();
+
+        assertThat(latestRates).succeedsWithin(Duration.ofSeconds(5)).isEqualTo(buildExpectedApiResponse());
+        wireMock.verify(2, getRequestedFor(urlPathEqualTo(PATH_GET_LATEST_RATES)));
+    }
 
-        Optional<APIResponse> latestRates = client.getLatestRates();
+    @Test
+    void shouldFailOnGetLatestRatesWhenResponseBodyIsEmptyForAllAttempts() {
+        wireMock.stubFor(latestRatesRequest().willReturn(ok()));
+
+        CompletableFuture<APIResponse> latestRates = client.getLatestRates();
+
+        assertThat(latestRates).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(ExternalAPIException.class);
+        wireMock.verify(TEST_MAX_ATTEMPTS, getRequestedFor(urlPathEqualTo(PATH_GET_LATEST_RATES)));
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(meterRegistry.get("currency.external.calls").tag("outcome", "failure").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotRetryOnGetLatestRatesWhenRequestIsRejected() {
+        wireMock.stubFor(latestRatesRequest().willReturn(unauthorized()));
+
+        CompletableFuture<APIResponse> latestRates = client.getLatestRates();
 
-        assertThat(latestRates).isNotEmpty();
-        assertThat(latestRates.get()).isEqualTo(buildExpectedApiResponseWithError());
+        assertThat(latestRates).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(ExternalAPIException.class);
+        wireMock.verify(1, getRequestedFor(urlPathEqualTo(PATH_GET_LATEST_RATES)));
     }
 
     @Test
-    void shouldReturnEmptyOptionalOnGetLatestRatesWhenServiceIsUnavailable() {
-        server.expect(requestTo(PATH_GET_LATEST_RATES.formatted(TEST_ACCESS_KEY)))
-                .andExpect(method(GET))
-                .andRespond(withServiceUnavailable());
+    void shouldFailOnGetLatestRatesWhenServiceDoesNotRespondInTime() {
+        wireMock.stubFor(latestRatesRequest().willReturn(okJson(getJson200LatestRates())
+                .withFixedDelay((int) TEST_REQUEST_TIMEOUT.multipliedBy(2).toMillis())));
 
-        Optional<APIResponse> latestRates = client.getLatestRates();
+        CompletableFuture<APIResponse> latestRates = client.getLatestRates();
 
-        assertThat(latestRates).isEmpty();
+        assertThat(latestRates).failsWithin(Duration.ofSeconds(10))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(HttpTimeoutException.class);
+        wireMock.verify(TEST_MAX_ATTEMPTS, getRequestedFor(urlPathEqualTo(PATH_GET_LATEST_RATES)));
     }
 
+    @Test
+    void shouldNotCallServiceOnGetLatestRatesWhenCircuitBreakerIsOpen() {
+        wireMock.stubFor(latestRatesRequest().willReturn(unauthorized()));
+
+        assertThat(client.getLatestRates()).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(ExternalAPIException.class);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        assertThat(client.getLatestRates()).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(CircuitBreakerOpenException.class);
+        wireMock.verify(1, getRequestedFor(urlPathEqualTo(PATH_GET_LATEST_RATES)));
+        assertThat(meterRegistry.get("currency.external.calls").tag("outcome", "failure").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("currency.external.calls.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReportFailureToCircuitBreakerWhenRequestCannotBeSent() {
+        var invalidUrlClient = new ExternalAPIClient("not a url", TEST_ACCESS_KEY, TEST_REQUEST_TIMEOUT, TEST_MAX_ATTEMPTS,
+                TEST_INITIAL_BACKOFF, HttpClient.newHttpClient(), circuitBreaker, Jackson2ObjectMapperBuilder.json().build(),
+                new CurrencyMetrics(meterRegistry));
+
+        assertThat(invalidUrlClient.getLatestRates()).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(meterRegistry.get("currency.external.calls").tag("outcome", "failure").timer().count()).isEqualTo(1);
+    }
+
+    private static MappingBuilder latestRatesRequest() {
+        return WireMock.get(urlPathEqualTo(PATH_GET_LATEST_RATES))
+                .withQueryParam("access_key", equalTo(TEST_ACCESS_KEY));
+    }
 
     private APIResponse buildExpectedApiResponse() {
         return new APIResponse(true, TEST_RATE_TIMESTAMP, TEST_BASE, TEST_RATE_DATE, TEST_RATES, null);
@@ -108,4 +224,4 @@ class ExternalAPIClientTest {
     private String getJson200LatestRatesWithError() {
         return Files.readString(Paths.get("src/test/resources", JSON_200_LATEST_RATES_WITH_ERROR));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,32 @@
+package com.task.spribetask.health;
+
+import com.task.spribetask.service.CurrencyService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.health.Status;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RatesHydrationHealthIndicatorTest {
+
+    @Mock
+    private CurrencyService currencyService;
+
+    @Test
+    void shouldBeUpWhenRatesAreLoaded() {
+        when(currencyService.isHydrated()).thenReturn(true);
+
+        assertThat(new RatesHydrationHealthIndicator(currencyService).health().getStatus()).isEqualTo(Status.UP);
+    }
+
+    @Test
+    void shouldBeOutOfServiceWhileRatesAreLoading() {
+        when(currencyService.isHydrated()).thenReturn(false);
+
+        assertThat(new RatesHydrationHealthIndicator(currencyService).health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+    }
+}
@@ -3,6 +3,7 @@ package com.task.spribetask.integrationtests;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
 import com.task.spribetask.repository.CurrencyRatesRepository;
+import com.task.spribetask.service.CurrencyRatesRetentionJob;
 import io.restassured.RestAssured;
 import io.restassured.http.ContentType;
 import lombok.SneakyThrows;
@@ -14,6 +15,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
@@ -50,6 +52,10 @@ public class CurrencyRatesApplicationTest {
     private static final long TEST_TIMESTAMP = TEST_RATE_DATE_TIME.atZone(ZoneId.systemDefault()).toEpochSecond();
     private static final long TEST_NEXT_TIMESTAMP = TEST_RATE_DATE_TIME.plusSeconds(30).atZone(ZoneId.systemDefault()).toEpochSecond();
 
+    private static final String TEST_STALE_CURRENCY = "CHF";
+    private static final LocalDateTime TEST_OLD_DATE_TIME = LocalDateTime.of(2020, 1, 15, 10, 0);
+    private static final LocalDateTime TEST_OLD_CUTOFF = LocalDateTime.of(2020, 2, 1, 0, 0);
+
     private static final String JSON_200_LATEST_RATES = "payload/integrationtests/wiremock/200_latest_rates.json";
 
     @LocalServerPort
@@ -77,6 +83,12 @@ public class CurrencyRatesApplicationTest {
     @Autowired
     private CurrencyRatesRepository currencyRatesRepository;
 
+    @Autowired
+    private CurrencyRatesRetentionJob currencyRatesRetentionJob;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Value("${currency.service.access.key}")
     private String accessKey;
 
@@ -151,7 +163,7 @@ public class CurrencyRatesApplicationTest {
                 .then()
                 .statusCode(200)
                 .body("currency", is(TEST_CURRENCY_EUR))
-                .body("rates", aMapWithSize(2));
+                .body("rates", aMapWithSize(4));
     }
 
     @Test
@@ -175,7 +187,7 @@ public class CurrencyRatesApplicationTest {
                 .then()
                 .statusCode(200)
                 .body("currency", is(TEST_CURRENCY_USD))
-                .body("rates", aMapWithSize(2));
+                .body("rates", aMapWithSize(4));
     }
 
     @Test
@@ -225,6 +237,88 @@ public class CurrencyRatesApplicationTest {
         assertThat(usdRatesOld.get().getDateTime()).isBefore(usdRatesNew.get().getDateTime());
     }
 
+    @Test
+    @Order(8)
+    void shouldGetDailyOhlcOfRetrievedRates() {
+        // both refreshes are rolled up, the second one is 30 seconds after the end of rates date
+        given()
+                .queryParam("currency", TEST_CURRENCY_USD)
+                .queryParam("symbol", TEST_CURRENCY_EUR)
+                .queryParam("period", "day")
+                .queryParam("from", TEST_RATE_DATE.atStartOfDay().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                .queryParam("to", TEST_RATE_DATE.plusDays(2).atStartOfDay().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                .contentType(ContentType.JSON)
+                .when()
+                .get("/currency/ohlc")
+                .then()
+                .statusCode(200)
+                .body(".", hasSize(2))
+                .body("[0].dateTime", is(TEST_RATE_DATE.atStartOfDay().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)));
+    }
+
+    @Test
+    @Order(9)
+    void shouldDeleteHistoryOlderThanCutoffInBatches() {
+        insertRates(TEST_CURRENCY_USD, TEST_OLD_DATE_TIME);
+        insertRates(TEST_CURRENCY_USD, TEST_OLD_DATE_TIME.plusHours(1));
+        insertOhlc("HOUR", TEST_OLD_DATE_TIME);
+        insertOhlc("DAY", TEST_OLD_DATE_TIME.toLocalDate().atStartOfDay());
+
+        var firstBatch = currencyRatesRepository.deleteRatesBefore(TEST_OLD_CUTOFF, 1);
+        var secondBatch = currencyRatesRepository.deleteRatesBefore(TEST_OLD_CUTOFF, 1);
+        var emptyBatch = currencyRatesRepository.deleteRatesBefore(TEST_OLD_CUTOFF, 1);
+        var ohlcBatch = currencyRatesRepository.deleteOhlcBefore("HOUR", TEST_OLD_CUTOFF, 10);
+
+        assertThat(firstBatch.getRows()).isEqualTo(1);
+        assertThat(firstBatch.getBytes()).isPositive();
+        assertThat(secondBatch.getRows()).isEqualTo(1);
+        assertThat(emptyBatch.getRows()).isZero();
+        assertThat(emptyBatch.getBytes()).isZero();
+        assertThat(ohlcBatch.getRows()).isEqualTo(1);
+        assertThat(countRows("select count(*) from currencies_rates where date_time < ?", TEST_OLD_CUTOFF)).isZero();
+        // daily rows are not removed by retention
+        assertThat(countRows("select count(*) from currencies_rates_ohlc where period = 'DAY' and bucket < ?", TEST_OLD_CUTOFF)).isEqualTo(1);
+        // rates of retrieved refreshes are newer than cutoff
+        assertThat(currencyRatesRepository.findFirstByCurrencyOrderByDateTimeDesc(TEST_CURRENCY_USD)).isPresent();
+    }
+
+    @Test
+    @Order(10)
+    void shouldDropPartitionsOutOfRetentionAndKeepLatestRates() {
+        jdbcTemplate.execute("create table currencies_rates_2020_01 partition of currencies_rates " +
+                "for values from ('2020-01-01') to ('2020-02-01')");
+        insertRates(TEST_CURRENCY_USD, TEST_OLD_DATE_TIME);
+        // currency which is not refreshed anymore, its only rates are older than retention
+        insertRates(TEST_STALE_CURRENCY, TEST_OLD_DATE_TIME.plusYears(1));
+
+        // partition is found by listing partitions of currencies_rates, detached and dropped
+        currencyRatesRetentionJob.run();
+
+        assertThat(jdbcTemplate.queryForObject("select to_regclass('currencies_rates_2020_01') is null", Boolean.class)).isTrue();
+        // every currency keeps only its latest rates, the stale currency doesn't keep history of the others
+        assertThat(countRows("select count(*) from currencies_rates where date_time < ?",
+                TEST_RATE_DATE.plusDays(1).atStartOfDay())).isEqualTo(1);
+        assertThat(currencyRatesRepository.findFirstByCurrencyOrderByDateTimeDesc(TEST_STALE_CURRENCY)).isPresent();
+        assertThat(currencyRatesRepository.findFirstByCurrencyOrderByDateTimeDesc(TEST_CURRENCY_EUR)).isPresent();
+        assertThat(currencyRatesRepository.findFirstByCurrencyOrderByDateTimeDesc(TEST_CURRENCY_USD)).isPresent();
+    }
+
+    private void insertRates(String currency, LocalDateTime dateTime) {
+        jdbcTemplate.update("insert into currencies_rates (currency, date_time, rates) values (?, ?, cast(? as jsonb))",
+                currency, dateTime, "{\"EUR\": 0.9}");
+    }
+
+    private void insertOhlc(String period, LocalDateTime bucket) {
+        jdbcTemplate.update("""
+                insert into currencies_rates_ohlc (currency, symbol, period, bucket, open, high, low, close, open_time, close_time)
+                values (?, ?, ?, ?, 0.9, 0.9, 0.9, 0.9, ?, ?)
+                """, TEST_CURRENCY_USD, TEST_CURRENCY_EUR, period, bucket, bucket, bucket);
+    }
+
+    private long countRows(String query, LocalDateTime dateTime) {
+        return jdbcTemplate.queryForObject(query, Long.class, dateTime);
+    }
+
     @SneakyThrows
     private static String getJson200LatestRates() {
         return Files.readString(Paths.get("src/test/resources", JSON_200_LATEST_RATES));
@@ -0,0 +1,79 @@
+package com.task.spribetask.rates;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class RateTableTest {
+
+    private static final Map<String, Double> TEST_EUR_RATES = Map.of("EUR", 1.0, "USD", 1.25, "GBP", 0.8, "JPY", 160.0);
+
+    @Test
+    void shouldReturnRatesByCurrency() {
+        var rateTable = RateTable.of(TEST_EUR_RATES);
+
+        assertThat(rateTable.size()).isEqualTo(4);
+        assertThat(rateTable.rate("USD")).isEqualTo(1.25);
+        assertThat(rateTable.contains("GBP")).isTrue();
+        assertThat(rateTable.contains("NotValid")).isFalse();
+        assertThat(rateTable.rate("NotValid")).isNaN();
+    }
+
+    @Test
+    void shouldIterateOverAllRates() {
+        var rateTable = RateTable.of(TEST_EUR_RATES);
+        var actualRates = new HashMap<String, Double>();
+
+        rateTable.forEach(actualRates::put);
+
+        assertThat(actualRates).isEqualTo(TEST_EUR_RATES);
+    }
+
+    @Test
+    void shouldCalculateCrossRatesOnRebase() {
+        var rateTable = RateTable.of(TEST_EUR_RATES);
+
+        var usdRates = rateTable.rebase("USD");
+
+        assertThat(usdRates).isPresent();
+        assertThat(usdRates.get().size()).isEqualTo(4);
+        assertThat(usdRates.get().rate("USD")).isEqualTo(1.0);
+        assertThat(usdRates.get().rate("EUR")).isCloseTo(0.8, within(1e-12));
+        assertThat(usdRates.get().rate("GBP")).isCloseTo(0.64, within(1e-12));
+        assertThat(usdRates.get().rate("JPY")).isCloseTo(128.0, within(1e-12));
+    }
+
+    @Test
+    void shouldReturnEmptyOnRebaseWhenThereIsNoRateForBase() {
+        var rateTable = RateTable.of(TEST_EUR_RATES);
+
+        assertThat(rateTable.rebase("NotValid")).isEmpty();
+    }
+
+    @Test
+    void shouldBeEqualWhenRatesAreEqual() {
+        var rateTable = RateTable.of(Map.of("GBP", 0.8));
+        // new code makes dictionary bigger, so second table gets longer vector
+        RateTable.of(Map.of("RateTableTestCode", 1.0));
+        var sameRateTable = RateTable.of(Map.of("GBP", 0.8));
+
+        assertThat(rateTable).isEqualTo(sameRateTable);
+        assertThat(rateTable.hashCode()).isEqualTo(sameRateTable.hashCode());
+        assertThat(rateTable).isNotEqualTo(RateTable.of(Map.of("GBP", 0.9)));
+    }
+
+    @Test
+    void shouldReturnOnlyAddedAndChangedRatesSincePrevious() {
+        var previous = RateTable.of(Map.of("USD", 1.25, "GBP", 0.8, "JPY", 160.0));
+        var current = RateTable.of(Map.of("USD", 1.25, "GBP", 0.81, "CHF", 0.97));
+
+        var changed = current.changedSince(previous);
+
+        assertThat(changed).isEqualTo(RateTable.of(Map.of("GBP", 0.81, "CHF", 0.97)));
+        assertThat(current.removedSince(previous)).containsExactly("JPY");
+    }
+}
@@ -0,0 +1,58 @@
+package com.task.spribetask.resource;
+
+import com.task.spribetask.config.AccessLogProperties;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccessLogFilterTest {
+
+    private static final String HOT_PATH = "/currency/latest";
+    private static final String OTHER_PATH = "/currency/add";
+
+    @Test
+    void shouldSamplePathsByConfiguredRate() {
+        var accessLogFilter = new AccessLogFilter(new AccessLogProperties(true, 1.0, Map.of(HOT_PATH, 0.0)));
+
+        assertThat(accessLogFilter.isSampled(HOT_PATH)).isFalse();
+        assertThat(accessLogFilter.isSampled(OTHER_PATH)).isTrue();
+    }
+
+    @Test
+    void shouldNotSampleWhenDefaultRateIsZero() {
+        var accessLogFilter = new AccessLogFilter(new AccessLogProperties(true, 0.0, Map.of(HOT_PATH, 1.0)));
+
+        assertThat(accessLogFilter.isSampled(HOT_PATH)).isTrue();
+        assertThat(accessLogFilter.isSampled(OTHER_PATH)).isFalse();
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldPassRequestToChain() {
+        var accessLogFilter = new AccessLogFilter(new AccessLogProperties(true, 1.0, Map.of()));
+        var request = new MockHttpServletRequest("GET", OTHER_PATH);
+        var filterChain = new MockFilterChain();
+
+        accessLogFilter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        assertThat(filterChain.getRequest()).isSameAs(request);
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldPassRequestToChainWhenAccessLogIsDisabled() {
+        var accessLogFilter = new AccessLogFilter(new AccessLogProperties(false, 1.0, Map.of()));
+        var request = new MockHttpServletRequest("GET", OTHER_PATH);
+        var filterChain = new MockFilterChain();
+
+        accessLogFilter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        assertThat(filterChain.getRequest()).isSameAs(request);
+    }
+}
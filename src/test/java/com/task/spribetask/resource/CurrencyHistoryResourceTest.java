@@ -0,0 +1,157 @@
+package com.task.spribetask.resource;
+
+import com.task.spribetask.dto.CurrencyRatesHistoryRow;
+import com.task.spribetask.dto.CurrencyRatesOhlc;
+import com.task.spribetask.exception.CurrencyServiceException;
+import com.task.spribetask.service.CurrencyRatesHistoryService;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(CurrencyHistoryResource.class)
+class CurrencyHistoryResourceTest {
+
+    private static final String GET_HISTORY = "/currency/history";
+    private static final String GET_OHLC = "/currency/ohlc";
+
+    private static final String TEST_CURRENCY = "USD";
+    private static final String TEST_SYMBOL = "EUR";
+    private static final LocalDateTime TEST_FROM = LocalDateTime.of(2024, 4, 1, 0, 0);
+    private static final LocalDateTime TEST_TO = LocalDateTime.of(2024, 4, 2, 0, 0);
+
+    @MockBean
+    private CurrencyRatesHistoryService currencyRatesHistoryService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @AfterEach
+    void tearDown() {
+        verifyNoMoreInteractions(currencyRatesHistoryService);
+    }
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("unchecked")
+    void shouldGetHistory() {
+        doAnswer(invocation -> {
+            Consumer<List<CurrencyRatesHistoryRow>> pageConsumer = invocation.getArgument(4);
+            pageConsumer.accept(List.of(buildRow(1L, TEST_FROM.plusHours(1), "{\"EUR\": 0.813399}"),
+                    buildRow(2L, TEST_FROM.plusHours(2), null)));
+            pageConsumer.accept(List.of(buildRow(3L, TEST_FROM.plusHours(3), "{\"EUR\": 0.813401}")));
+            return null;
+        }).when(currencyRatesHistoryService).forEachHistoryPage(eq(TEST_CURRENCY), eq(TEST_FROM), eq(TEST_TO), eq(List.of("EUR")), any());
+
+        var mvcResult = mockMvc.perform(get(GET_HISTORY)
+                        .queryParam("currency", TEST_CURRENCY)
+                        .queryParam("from", "2024-04-01T00:00:00")
+                        .queryParam("to", "2024-04-02T00:00:00")
+                        .queryParam("symbols", "EUR"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().json("""
+                        [
+                          {"dateTime": "2024-04-01T01:00:00", "rates": {"EUR": 0.813399}},
+                          {"dateTime": "2024-04-01T02:00:00", "rates": {}},
+                          {"dateTime": "2024-04-01T03:00:00", "rates": {"EUR": 0.813401}}
+                        ]
+                        """, true));
+
+        verify(currencyRatesHistoryService).validateRange(TEST_FROM, TEST_TO);
+        verify(currencyRatesHistoryService).forEachHistoryPage(eq(TEST_CURRENCY), eq(TEST_FROM), eq(TEST_TO), eq(List.of("EUR")), any());
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldReceiveAPIErrorOnGetHistoryWhenTimeRangeIsNotValid() {
+        doThrow(new CurrencyServiceException("Invalid time range", "Booo!!!"))
+                .when(currencyRatesHistoryService).validateRange(TEST_TO, TEST_FROM);
+
+        mockMvc.perform(get(GET_HISTORY)
+                        .queryParam("currency", TEST_CURRENCY)
+                        .queryParam("from", "2024-04-02T00:00:00")
+                        .queryParam("to", "2024-04-01T00:00:00"))
+                .andExpect(status().isBadRequest());
+
+        verify(currencyRatesHistoryService).validateRange(TEST_TO, TEST_FROM);
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldGetOhlc() {
+        when(currencyRatesHistoryService.getOhlc(TEST_CURRENCY, TEST_SYMBOL, "day", TEST_FROM, TEST_TO))
+                .thenReturn(List.of(new CurrencyRatesOhlc(TEST_FROM, new BigDecimal("0.813399"), new BigDecimal("0.813512"),
+                        new BigDecimal("0.813105"), new BigDecimal("0.813401"))));
+
+        mockMvc.perform(get(GET_OHLC)
+                        .queryParam("currency", TEST_CURRENCY)
+                        .queryParam("symbol", TEST_SYMBOL)
+                        .queryParam("from", "2024-04-01T00:00:00")
+                        .queryParam("to", "2024-04-02T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("""
+                        [
+                          {"dateTime": "2024-04-01T00:00:00", "open": 0.813399, "high": 0.813512, "low": 0.813105, "close": 0.813401}
+                        ]
+                        """, true));
+
+        verify(currencyRatesHistoryService).getOhlc(TEST_CURRENCY, TEST_SYMBOL, "day", TEST_FROM, TEST_TO);
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldReceiveAPIErrorOnGetOhlcWhenPeriodIsNotValid() {
+        when(currencyRatesHistoryService.getOhlc(TEST_CURRENCY, TEST_SYMBOL, "week", TEST_FROM, TEST_TO))
+                .thenThrow(new CurrencyServiceException("Invalid period", "Booo!!!"));
+
+        mockMvc.perform(get(GET_OHLC)
+                        .queryParam("currency", TEST_CURRENCY)
+                        .queryParam("symbol", TEST_SYMBOL)
+                        .queryParam("period", "week")
+                        .queryParam("from", "2024-04-01T00:00:00")
+                        .queryParam("to", "2024-04-02T00:00:00"))
+                .andExpect(status().isBadRequest());
+
+        verify(currencyRatesHistoryService).getOhlc(TEST_CURRENCY, TEST_SYMBOL, "week", TEST_FROM, TEST_TO);
+    }
+
+    private static CurrencyRatesHistoryRow buildRow(long id, LocalDateTime dateTime, String rates) {
+        return new CurrencyRatesHistoryRow() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public LocalDateTime getDateTime() {
+                return dateTime;
+            }
+
+            @Override
+            public String getRates() {
+                return rates;
+            }
+        };
+    }
+}
@@ -1,15 +1,28 @@
 package com.task.spribetask.resource;
 
+import com.task.spribetask.dto.CurrencyConversion;
 import com.task.spribetask.dto.CurrencyRates;
+import com.task.spribetask.dto.CurrencyRatesDelta;
 import com.task.spribetask.exception.CurrencyServiceException;
+import com.task.spribetask.exception.RatesWarmingUpException;
+import com.task.spribetask.metrics.CurrencyMetrics;
+import com.task.spribetask.rates.RateTable;
+import com.task.spribetask.service.CurrencyRatesSnapshot;
+import com.task.spribetask.service.CurrencyRatesSnapshotFactory;
+import com.task.spribetask.service.CurrencyRatesSubscriptionService;
 import com.task.spribetask.service.CurrencyService;
+import com.task.spribetask.service.RatesFreshness;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -19,36 +32,57 @@ import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@WebMvcTest(CurrencyResource.class)
+@WebMvcTest(value = CurrencyResource.class, properties = {
+        "currency.latest.batch.max-currencies=2",
+        "currency.convert.batch.max-conversions=2",
+        "currency.subscription.max-currencies=2"
+})
 class CurrencyResourceTest {
 
     private static final String GET_CURRENCIES_LIST = "/currency/list";
     private static final String GET_LATEST_CURRENCY_RATES = "/currency/latest";
+    private static final String LATEST_CURRENCY_RATES_BATCH = "/currency/latest/batch";
+    private static final String GET_LATEST_CURRENCY_RATES_DELTA = "/currency/latest/delta";
+    private static final String GET_CONVERT = "/currency/convert";
+    private static final String POST_CONVERT_BATCH = "/currency/convert/batch";
     private static final String POST_CURRENCY = "/currency/add";
+    private static final String GET_SUBSCRIBE = "/currency/subscribe";
 
     private static final String TEST_CURRENCY = "USD";
+    private static final String TEST_NOT_FOUND_CURRENCY = "ABC";
     private static final LocalDateTime TEST_RATE_DATE_TIME = LocalDate.now().atStartOfDay();
-    private static final Map<String, Double> TEST_RATES = Map.of("EUR", 0.72007);
+    private static final RateTable TEST_RATES = RateTable.of(Map.of("EUR", 0.72007));
+    private static final RatesFreshness TEST_RATES_FRESHNESS = new RatesFreshness(60, false);
 
     private static final String JSON_200_CURRENCIES_LIST = "payload/resource/200_currencies_list.json";
     private static final String JSON_200_CURRENCY_RATES = "payload/resource/200_currency_rates.json";
+    private static final String JSON_200_CURRENCY_RATES_BATCH = "payload/resource/200_currency_rates_batch.json";
+    private static final String JSON_200_CONVERSION = "payload/resource/200_conversion.json";
 
 
     @MockBean
     private CurrencyService currencyService;
+    @MockBean
+    private CurrencyMetrics currencyMetrics;
+    @MockBean
+    private CurrencyRatesSubscriptionService currencyRatesSubscriptionService;
 
     @Autowired
     private MockMvc mockMvc;
 
     @AfterEach
     void tearDown() {
-        verifyNoMoreInteractions(currencyService);
+        verifyNoMoreInteractions(currencyService, currencyRatesSubscriptionService);
     }
 
     @Test
@@ -66,39 +100,358 @@ class CurrencyResourceTest {
     @Test
     @SneakyThrows
     void shouldGetLatestRate() {
-        when(currencyService.getCurrencyRate(TEST_CURRENCY)).thenReturn(buildCurrencyRates());
+        when(currencyService.getCurrencyRatesSnapshot(TEST_CURRENCY)).thenReturn(buildCurrencyRatesSnapshot());
+        when(currencyService.getRatesFreshness(any())).thenReturn(TEST_RATES_FRESHNESS);
 
         mockMvc.perform(get(GET_LATEST_CURRENCY_RATES)
                         .queryParam("currency", TEST_CURRENCY))
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string("X-Rates-Age", "60"))
+                .andExpect(header().string("X-Rates-Stale", "false"))
+                .andExpect(header().exists("X-Rates-Version"))
                 .andExpect(content().json(getJson200CurrencyRates()
                         .formatted(TEST_RATE_DATE_TIME.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))));
 
-        verify(currencyService).getCurrencyRate(TEST_CURRENCY);
+        verify(currencyService).getCurrencyRatesSnapshot(TEST_CURRENCY);
+        verify(currencyService).getRatesFreshness(any());
+        verify(currencyMetrics).incrementLatestHit();
+        verify(currencyMetrics, never()).incrementLatestMiss();
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldGetGzippedLatestRateWhenClientAcceptsGzip() {
+        var currencyRatesSnapshot = buildCurrencyRatesSnapshot();
+        when(currencyService.getCurrencyRatesSnapshot(TEST_CURRENCY)).thenReturn(currencyRatesSnapshot);
+        when(currencyService.getRatesFreshness(currencyRatesSnapshot)).thenReturn(TEST_RATES_FRESHNESS);
+
+        mockMvc.perform(get(GET_LATEST_CURRENCY_RATES)
+                        .queryParam("currency", TEST_CURRENCY)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.ETAG, currencyRatesSnapshot.gzippedEtag()))
+                .andExpect(content().bytes(currencyRatesSnapshot.gzippedJson()));
+
+        verify(currencyService).getCurrencyRatesSnapshot(TEST_CURRENCY);
+        verify(currencyService).getRatesFreshness(currencyRatesSnapshot);
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldGetPlainLatestRateWhenClientRejectsGzip() {
+        var currencyRatesSnapshot = buildCurrencyRatesSnapshot();
+        when(currencyService.getCurrencyRatesSnapshot(TEST_CURRENCY)).thenReturn(currencyRatesSnapshot);
+        when(currencyService.getRatesFreshness(currencyRatesSnapshot)).thenReturn(TEST_RATES_FRESHNESS);
+
+        mockMvc.perform(get(GET_LATEST_CURRENCY_RATES)
+                        .queryParam("currency", TEST_CURRENCY)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, x-gzip, *"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(content().bytes(currencyRatesSnapshot.json()));
+
+        verify(currencyService).getCurrencyRatesSnapshot(TEST_CURRENCY);
+        verify(currencyService).getRatesFreshness(currencyRatesSnapshot);
+    }
+
+    @Test
+    void shouldParseAcceptedGzipWithQuality() {
+        assertThat(CurrencyResource.acceptsGzip("gzip, deflate")).isTrue();
+        assertThat(CurrencyResource.acceptsGzip("deflate, GZIP;q=0.5")).isTrue();
+        assertThat(CurrencyResource.acceptsGzip("br, *;q=0.1")).isTrue();
+        assertThat(CurrencyResource.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(CurrencyResource.acceptsGzip("gzip;q=0.0, *")).isFalse();
+        assertThat(CurrencyResource.acceptsGzip("x-gzip")).isFalse();
+        assertThat(CurrencyResource.acceptsGzip("identity")).isFalse();
+        assertThat(CurrencyResource.acceptsGzip(null)).isFalse();
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldReceiveNotModifiedOnGetLatestRateWhenEtagMatches() {
+        var currencyRatesSnapshot = buildCurrencyRatesSnapshot();
+        when(currencyService.getCurrencyRatesSnapshot(TEST_CURRENCY)).thenReturn(currencyRatesSnapshot);
+        when(currencyService.getRatesFreshness(currencyRatesSnapshot)).thenReturn(TEST_RATES_FRESHNESS);
+
+        mockMvc.perform(get(GET_LATEST_CURRENCY_RATES)
+                        .queryParam("currency", TEST_CURRENCY)
+                        .header(HttpHeaders.IF_NONE_MATCH, currencyRatesSnapshot.etag()))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, currencyRatesSnapshot.etag()))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(header().string("X-Rates-Stale", "false"))
+                .andExpect(content().bytes(new byte[0]));
+
+        verify(currencyService).getCurrencyRatesSnapshot(TEST_CURRENCY);
+        verify(currencyService).getRatesFreshness(currencyRatesSnapshot);
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldReceiveNotModifiedOnGetLatestRateWhenRatesWereNotModifiedSince() {
+        var currencyRatesSnapshot = buildCurrencyRatesSnapshot();
+        when(currencyService.getCurrencyRatesSnapshot(TEST_CURRENCY)).thenReturn(currencyRatesSnapshot);
+        when(currencyService.getRatesFreshness(currencyRatesSnapshot)).thenReturn(TEST_RATES_FRESHNESS);
+
+        mockMvc.perform(get(GET_LATEST_CURRENCY_RATES)
+                        .queryParam("currency", TEST_CURRENCY)
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, currencyRatesSnapshot.lastModified()))
+                .andExpect(status().isNotModified());
+
+        verify(currencyService).getCurrencyRatesSnapshot(TEST_CURRENCY);
+        verify(currencyService).getRatesFreshness(currencyRatesSnapshot);
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldGetLatestRateWhenEtagDoesNotMatch() {
+        var currencyRatesSnapshot = buildCurrencyRatesSnapshot();
+        when(currencyService.getCurrencyRatesSnapshot(TEST_CURRENCY)).thenReturn(currencyRatesSnapshot);
+        when(currencyService.getRatesFreshness(currencyRatesSnapshot)).thenReturn(TEST_RATES_FRESHNESS);
+
+        mockMvc.perform(get(GET_LATEST_CURRENCY_RATES)
+                        .queryParam("currency", TEST_CURRENCY)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"outdated\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, currencyRatesSnapshot.etag()))
+                .andExpect(content().bytes(currencyRatesSnapshot.json()));
+
+        verify(currencyService).getCurrencyRatesSnapshot(TEST_CURRENCY);
+        verify(currencyService).getRatesFreshness(currencyRatesSnapshot);
     }
 
     @Test
     @SneakyThrows
     void shouldReceiveAPIErrorOnGetLatestRateWhenCurrencyIsNotExist() {
-        when(currencyService.getCurrencyRate(TEST_CURRENCY)).thenThrow(new CurrencyServiceException("Boo", "Booo!!!"));
+        when(currencyService.getCurrencyRatesSnapshot(TEST_CURRENCY)).thenThrow(new CurrencyServiceException("Boo", "Booo!!!"));
 
         mockMvc.perform(get(GET_LATEST_CURRENCY_RATES)
                         .queryParam("currency", TEST_CURRENCY))
                 .andExpect(status().isBadRequest());
 
-        verify(currencyService).getCurrencyRate(TEST_CURRENCY);
+        verify(currencyService).getCurrencyRatesSnapshot(TEST_CURRENCY);
+        verify(currencyMetrics).incrementLatestMiss();
+        verify(currencyMetrics, never()).incrementLatestHit();
     }
 
     @Test
     @SneakyThrows
     void shouldReceiveAPIErrorOnGetLatestRateWhenRuntimeExceptionOccurred() {
-        when(currencyService.getCurrencyRate(TEST_CURRENCY)).thenThrow(new RuntimeException("Boo"));
+        when(currencyService.getCurrencyRatesSnapshot(TEST_CURRENCY)).thenThrow(new RuntimeException("Boo"));
 
         mockMvc.perform(get(GET_LATEST_CURRENCY_RATES)
                         .queryParam("currency", TEST_CURRENCY))
                 .andExpect(status().isInternalServerError());
 
-        verify(currencyService).getCurrencyRate(TEST_CURRENCY);
+        verify(currencyService).getCurrencyRatesSnapshot(TEST_CURRENCY);
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldGetLatestRatesBatch() {
+        when(currencyService.getCurrencyRatesSnapshot(TEST_CURRENCY)).thenReturn(buildCurrencyRatesSnapshot());
+        when(currencyService.getCurrencyRatesSnapshot(TEST_NOT_FOUND_CURRENCY))
+                .thenThrow(new CurrencyServiceException("Currency not found", "Booo!!!"));
+
+        var mvcResult = mockMvc.perform(get(LATEST_CURRENCY_RATES_BATCH)
+                        .queryParam("currencies", "%s,%s,%s".formatted(TEST_CURRENCY, TEST_NOT_FOUND_CURRENCY, TEST_CURRENCY)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().json(getJson200CurrencyRatesBatch()
+                        .formatted(TEST_RATE_DATE_TIME.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))));
+
+        verify(currencyService).getCurrencyRatesSnapshot(TEST_CURRENCY);
+        verify(currencyService).getCurrencyRatesSnapshot(TEST_NOT_FOUND_CURRENCY);
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldPostLatestRatesBatch() {
+        when(currencyService.getCurrencyRatesSnapshot(TEST_CURRENCY)).thenReturn(buildCurrencyRatesSnapshot());
+        when(currencyService.getCurrencyRatesSnapshot(TEST_NOT_FOUND_CURRENCY))
+                .thenThrow(new CurrencyServiceException("Currency not found", "Booo!!!"));
+
+        var mvcResult = mockMvc.perform(post(LATEST_CURRENCY_RATES_BATCH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"%s\",\"%s\"]".formatted(TEST_CURRENCY, TEST_NOT_FOUND_CURRENCY)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().json(getJson200CurrencyRatesBatch()
+                        .formatted(TEST_RATE_DATE_TIME.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))));
+
+        verify(currencyService).getCurrencyRatesSnapshot(TEST_CURRENCY);
+        verify(currencyService).getCurrencyRatesSnapshot(TEST_NOT_FOUND_CURRENCY);
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldReceiveAPIErrorOnGetLatestRatesWhenTooManyCurrenciesAreRequested() {
+        mockMvc.perform(get(LATEST_CURRENCY_RATES_BATCH)
+                        .queryParam("currencies", "USD,EUR,GBP,EUR"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("""
+                        {"message": "Too many currencies", "detailedMessage": "At most 2 currencies can be requested at once"}
+                        """));
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldReceiveAPIErrorOnPostLatestRatesWhenTooManyCurrenciesAreRequested() {
+        mockMvc.perform(post(LATEST_CURRENCY_RATES_BATCH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"USD\",\"EUR\",\"GBP\"]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldReceiveAPIErrorOnConvertWhenAmountIsNotValid() {
+        when(currencyService.convert(TEST_CURRENCY, "EUR", Double.NaN))
+                .thenThrow(new CurrencyServiceException("Invalid amount", "Booo!!!"));
+
+        mockMvc.perform(get(GET_CONVERT)
+                        .queryParam("from", TEST_CURRENCY)
+                        .queryParam("to", "EUR")
+                        .queryParam("amount", "NaN"))
+                .andExpect(status().isBadRequest());
+
+        verify(currencyService).convert(TEST_CURRENCY, "EUR", Double.NaN);
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldConvert() {
+        when(currencyService.convert(TEST_CURRENCY, "EUR", 10)).thenReturn(buildCurrencyConversion());
+
+        mockMvc.perform(get(GET_CONVERT)
+                        .queryParam("from", TEST_CURRENCY)
+                        .queryParam("to", "EUR")
+                        .queryParam("amount", "10"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(getJson200Conversion()
+                        .formatted(TEST_RATE_DATE_TIME.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))));
+
+        verify(currencyService).convert(TEST_CURRENCY, "EUR", 10);
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldReceiveAPIErrorOnConvertWhenCurrencyIsNotExist() {
+        when(currencyService.convert(TEST_CURRENCY, "EUR", 10)).thenThrow(new CurrencyServiceException("Boo", "Booo!!!"));
+
+        mockMvc.perform(get(GET_CONVERT)
+                        .queryParam("from", TEST_CURRENCY)
+                        .queryParam("to", "EUR")
+                        .queryParam("amount", "10"))
+                .andExpect(status().isBadRequest());
+
+        verify(currencyService).convert(TEST_CURRENCY, "EUR", 10);
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldConvertBatch() {
+        when(currencyService.convert(TEST_CURRENCY, "EUR", 10)).thenReturn(buildCurrencyConversion());
+
+        mockMvc.perform(post(POST_CONVERT_BATCH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"from": "%s", "to": "EUR", "amount": 10}]
+                                """.formatted(TEST_CURRENCY)))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[%s]".formatted(getJson200Conversion()
+                        .formatted(TEST_RATE_DATE_TIME.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)))));
+
+        verify(currencyService).convert(TEST_CURRENCY, "EUR", 10);
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldReceiveAPIErrorOnConvertBatchWhenTooManyConversionsAreRequested() {
+        mockMvc.perform(post(POST_CONVERT_BATCH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"from": "USD", "to": "EUR", "amount": 10},
+                                 {"from": "USD", "to": "JPY", "amount": 10},
+                                 {"from": "EUR", "to": "JPY", "amount": 10}]
+                                """))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("""
+                        {"message": "Too many conversions", "detailedMessage": "At most 2 conversions can be requested at once"}
+                        """));
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldReceiveServiceUnavailableOnGetLatestRateWhenRatesAreWarmingUp() {
+        when(currencyService.getCurrencyRatesSnapshot(TEST_CURRENCY)).thenThrow(new RatesWarmingUpException());
+
+        mockMvc.perform(get(GET_LATEST_CURRENCY_RATES)
+                        .queryParam("currency", TEST_CURRENCY))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "5"))
+                .andExpect(content().json("""
+                        {"message": "Rates are warming up"}
+                        """));
+
+        verify(currencyService).getCurrencyRatesSnapshot(TEST_CURRENCY);
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldGetLatestRateDelta() {
+        var since = 1712031780000L;
+        var version = 1712035380000L;
+        when(currencyService.getCurrencyRatesDelta(TEST_CURRENCY, since))
+                .thenReturn(new CurrencyRatesDelta(TEST_CURRENCY, since, version, TEST_RATE_DATE_TIME, TEST_RATES, List.of("JPY")));
+
+        mockMvc.perform(get(GET_LATEST_CURRENCY_RATES_DELTA)
+                        .queryParam("currency", TEST_CURRENCY)
+                        .queryParam("since", String.valueOf(since)))
+                .andExpect(status().isOk())
+                .andExpect(content().json("""
+                        {"currency": "USD", "since": 1712031780000, "version": 1712035380000, "dateTime": "%s",
+                         "rates": {"EUR": 0.72007}, "removed": ["JPY"]}
+                        """.formatted(TEST_RATE_DATE_TIME.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)), true));
+
+        verify(currencyService).getCurrencyRatesDelta(TEST_CURRENCY, since);
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldSubscribe() {
+        var currencyRatesSnapshot = buildCurrencyRatesSnapshot();
+        when(currencyService.getCurrencyRatesSnapshot(TEST_CURRENCY)).thenReturn(currencyRatesSnapshot);
+        when(currencyRatesSubscriptionService.subscribe(List.of(currencyRatesSnapshot))).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get(GET_SUBSCRIBE)
+                        .queryParam("currencies", TEST_CURRENCY + "," + TEST_CURRENCY))
+                .andExpect(request().asyncStarted());
+
+        verify(currencyService).getCurrencyRatesSnapshot(TEST_CURRENCY);
+        verify(currencyRatesSubscriptionService).subscribe(List.of(currencyRatesSnapshot));
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldReceiveAPIErrorOnSubscribeWhenCurrencyIsNotFound() {
+        when(currencyService.getCurrencyRatesSnapshot(TEST_NOT_FOUND_CURRENCY))
+                .thenThrow(new CurrencyServiceException("Currency not found", "Booo!!!"));
+
+        mockMvc.perform(get(GET_SUBSCRIBE)
+                        .queryParam("currencies", TEST_NOT_FOUND_CURRENCY))
+                .andExpect(status().isBadRequest());
+
+        verify(currencyService).getCurrencyRatesSnapshot(TEST_NOT_FOUND_CURRENCY);
     }
 
     @Test
@@ -111,6 +464,17 @@ class CurrencyResourceTest {
         verify(currencyService).addCurrency(TEST_CURRENCY);
     }
 
+    @Test
+    @SneakyThrows
+    void shouldReceiveAPIErrorOnSubscribeWhenTooManyCurrenciesAreRequested() {
+        mockMvc.perform(get(GET_SUBSCRIBE)
+                        .queryParam("currencies", "USD,EUR,GBP,EUR"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("""
+                        {"message": "Too many currencies", "detailedMessage": "At most 2 currencies can be subscribed to at once"}
+                        """));
+    }
+
     @Test
     @SneakyThrows
     void shouldReceiveAPIErrorOnAddCurrencyWhenCurrencyIsAlreadyExist() {
@@ -135,8 +499,13 @@ class CurrencyResourceTest {
         verify(currencyService).addCurrency(TEST_CURRENCY);
     }
 
-    private static CurrencyRates buildCurrencyRates() {
-        return new CurrencyRates(TEST_CURRENCY, TEST_RATE_DATE_TIME, TEST_RATES);
+    private static CurrencyConversion buildCurrencyConversion() {
+        return new CurrencyConversion(TEST_CURRENCY, "EUR", 10, 0.72007, 7.2007, TEST_RATE_DATE_TIME);
+    }
+
+    private static CurrencyRatesSnapshot buildCurrencyRatesSnapshot() {
+        return new CurrencyRatesSnapshotFactory(Jackson2ObjectMapperBuilder.json().build(), true)
+                .create(new CurrencyRates(TEST_CURRENCY, TEST_RATE_DATE_TIME, TEST_RATES));
     }
 
     @SneakyThrows
@@ -149,4 +518,14 @@ class CurrencyResourceTest {
         return Files.readString(Paths.get("src/test/resources", JSON_200_CURRENCY_RATES));
     }
 
+    @SneakyThrows
+    private static String getJson200Conversion() {
+        return Files.readString(Paths.get("src/test/resources", JSON_200_CONVERSION));
+    }
+
+    @SneakyThrows
+    private static String getJson200CurrencyRatesBatch() {
+        return Files.readString(Paths.get("src/test/resources", JSON_200_CURRENCY_RATES_BATCH));
+    }
+
 }
\ No newline at end of file
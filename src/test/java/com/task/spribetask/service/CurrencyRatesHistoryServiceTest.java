@@ -0,0 +1,179 @@
+package com.task.spribetask.service;
+
+import com.task.spribetask.dto.CurrencyRatesHistoryRow;
+import com.task.spribetask.dto.CurrencyRatesOhlc;
+import com.task.spribetask.dto.CurrencyRatesOhlcRow;
+import com.task.spribetask.exception.CurrencyServiceException;
+import com.task.spribetask.repository.CurrencyRatesRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CurrencyRatesHistoryServiceTest {
+
+    private static final int TEST_PAGE_SIZE = 2;
+    private static final String TEST_CURRENCY = "USD";
+    private static final String TEST_SYMBOL = "EUR";
+    private static final LocalDateTime TEST_FROM = LocalDateTime.of(2024, 4, 1, 0, 0);
+    private static final LocalDateTime TEST_TO = LocalDateTime.of(2024, 4, 2, 0, 0);
+
+    @Mock
+    private CurrencyRatesRepository currencyRatesRepository;
+
+    private CurrencyRatesHistoryService currencyRatesHistoryService;
+
+    @BeforeEach
+    void setUp() {
+        currencyRatesHistoryService = new CurrencyRatesHistoryService(currencyRatesRepository, TEST_PAGE_SIZE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        verifyNoMoreInteractions(currencyRatesRepository);
+    }
+
+    @Test
+    void shouldReadHistoryPageByPage() {
+        var firstRow = buildRow(1L, TEST_FROM.plusHours(1));
+        var secondRow = buildRow(2L, TEST_FROM.plusHours(2));
+        var thirdRow = buildRow(3L, TEST_FROM.plusHours(3));
+        when(currencyRatesRepository.findHistoryPage(TEST_CURRENCY, TEST_FROM, TEST_TO, TEST_FROM, -1L, TEST_PAGE_SIZE))
+                .thenReturn(List.of(firstRow, secondRow));
+        when(currencyRatesRepository.findHistoryPage(TEST_CURRENCY, TEST_FROM, TEST_TO, secondRow.getDateTime(), 2L, TEST_PAGE_SIZE))
+                .thenReturn(List.of(thirdRow));
+        var pages = new ArrayList<List<CurrencyRatesHistoryRow>>();
+
+        currencyRatesHistoryService.forEachHistoryPage(TEST_CURRENCY, TEST_FROM, TEST_TO, List.of(), pages::add);
+
+        assertThat(pages).containsExactly(List.of(firstRow, secondRow), List.of(thirdRow));
+        verify(currencyRatesRepository).findHistoryPage(TEST_CURRENCY, TEST_FROM, TEST_TO, TEST_FROM, -1L, TEST_PAGE_SIZE);
+        verify(currencyRatesRepository).findHistoryPage(TEST_CURRENCY, TEST_FROM, TEST_TO, secondRow.getDateTime(), 2L, TEST_PAGE_SIZE);
+    }
+
+    @Test
+    void shouldStopReadingHistoryWhenLastPageIsFullButNextIsEmpty() {
+        var firstRow = buildRow(1L, TEST_FROM.plusHours(1));
+        var secondRow = buildRow(2L, TEST_FROM.plusHours(2));
+        when(currencyRatesRepository.findHistoryPage(TEST_CURRENCY, TEST_FROM, TEST_TO, TEST_FROM, -1L, TEST_PAGE_SIZE))
+                .thenReturn(List.of(firstRow, secondRow));
+        when(currencyRatesRepository.findHistoryPage(TEST_CURRENCY, TEST_FROM, TEST_TO, secondRow.getDateTime(), 2L, TEST_PAGE_SIZE))
+                .thenReturn(List.of());
+        var pages = new ArrayList<List<CurrencyRatesHistoryRow>>();
+
+        currencyRatesHistoryService.forEachHistoryPage(TEST_CURRENCY, TEST_FROM, TEST_TO, List.of(), pages::add);
+
+        assertThat(pages).containsExactly(List.of(firstRow, secondRow));
+        verify(currencyRatesRepository).findHistoryPage(TEST_CURRENCY, TEST_FROM, TEST_TO, TEST_FROM, -1L, TEST_PAGE_SIZE);
+        verify(currencyRatesRepository).findHistoryPage(TEST_CURRENCY, TEST_FROM, TEST_TO, secondRow.getDateTime(), 2L, TEST_PAGE_SIZE);
+    }
+
+    @Test
+    void shouldReadHistoryForSymbols() {
+        var symbols = List.of("EUR", "GBP");
+        var row = buildRow(1L, TEST_FROM.plusHours(1));
+        when(currencyRatesRepository.findHistoryPageForSymbols(TEST_CURRENCY, TEST_FROM, TEST_TO, symbols, TEST_FROM, -1L, TEST_PAGE_SIZE))
+                .thenReturn(List.of(row));
+        var pages = new ArrayList<List<CurrencyRatesHistoryRow>>();
+
+        currencyRatesHistoryService.forEachHistoryPage(TEST_CURRENCY, TEST_FROM, TEST_TO, symbols, pages::add);
+
+        assertThat(pages).containsExactly(List.of(row));
+        verify(currencyRatesRepository).findHistoryPageForSymbols(TEST_CURRENCY, TEST_FROM, TEST_TO, symbols, TEST_FROM, -1L, TEST_PAGE_SIZE);
+    }
+
+    @Test
+    void shouldThrowExceptionWhenTimeRangeIsNotValid() {
+        var exception = assertThrows(CurrencyServiceException.class,
+                () -> currencyRatesHistoryService.forEachHistoryPage(TEST_CURRENCY, TEST_TO, TEST_FROM, List.of(), page -> {}));
+
+        assertThat(exception.getError()).isEqualTo("Invalid time range");
+    }
+
+    @Test
+    void shouldGetOhlc() {
+        var row = buildOhlcRow(TEST_FROM, "0.813399", "0.813512", "0.813105", "0.813401");
+        when(currencyRatesRepository.findOhlc(TEST_CURRENCY, TEST_SYMBOL, "HOUR", TEST_FROM, TEST_TO)).thenReturn(List.of(row));
+
+        var ohlc = currencyRatesHistoryService.getOhlc(TEST_CURRENCY, TEST_SYMBOL, "hour", TEST_FROM, TEST_TO);
+
+        assertThat(ohlc).containsExactly(new CurrencyRatesOhlc(TEST_FROM, new BigDecimal("0.813399"),
+                new BigDecimal("0.813512"), new BigDecimal("0.813105"), new BigDecimal("0.813401")));
+    }
+
+    @Test
+    void shouldThrowExceptionOnGetOhlcWhenPeriodIsNotValid() {
+        var exception = assertThrows(CurrencyServiceException.class,
+                () -> currencyRatesHistoryService.getOhlc(TEST_CURRENCY, TEST_SYMBOL, "week", TEST_FROM, TEST_TO));
+
+        assertThat(exception.getError()).isEqualTo("Invalid period");
+    }
+
+    @Test
+    void shouldThrowExceptionOnGetOhlcWhenTimeRangeIsNotValid() {
+        var exception = assertThrows(CurrencyServiceException.class,
+                () -> currencyRatesHistoryService.getOhlc(TEST_CURRENCY, TEST_SYMBOL, "day", TEST_TO, TEST_FROM));
+
+        assertThat(exception.getError()).isEqualTo("Invalid time range");
+    }
+
+    private static CurrencyRatesHistoryRow buildRow(long id, LocalDateTime dateTime) {
+        return new CurrencyRatesHistoryRow() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public LocalDateTime getDateTime() {
+                return dateTime;
+            }
+
+            @Override
+            public String getRates() {
+                return "{\"EUR\": 0.813399}";
+            }
+        };
+    }
+
+    private static CurrencyRatesOhlcRow buildOhlcRow(LocalDateTime bucket, String open, String high, String low, String close) {
+        return new CurrencyRatesOhlcRow() {
+            @Override
+            public LocalDateTime getBucket() {
+                return bucket;
+            }
+
+            @Override
+            public BigDecimal getOpen() {
+                return new BigDecimal(open);
+            }
+
+            @Override
+            public BigDecimal getHigh() {
+                return new BigDecimal(high);
+            }
+
+            @Override
+            public BigDecimal getLow() {
+                return new BigDecimal(low);
+            }
+
+            @Override
+            public BigDecimal getClose() {
+                return new BigDecimal(close);
+            }
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package com.task.spribetask.service;
+
+import com.task.spribetask.cluster.LeaderElection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CurrencyRatesPartitionJobTest {
+
+    private static final Duration TEST_INTERVAL = Duration.ofDays(1);
+    private static final int TEST_MONTHS_AHEAD = 12;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private LeaderElection leaderElection;
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    private CurrencyRatesPartitionJob currencyRatesPartitionJob;
+
+    @BeforeEach
+    void setUp() {
+        currencyRatesPartitionJob = new CurrencyRatesPartitionJob(jdbcTemplate, leaderElection, taskScheduler, true,
+                TEST_INTERVAL, TEST_MONTHS_AHEAD);
+    }
+
+    @AfterEach
+    void tearDown() {
+        verifyNoMoreInteractions(jdbcTemplate, leaderElection, taskScheduler);
+    }
+
+    @Test
+    void shouldScheduleRunsWhenEnabled() {
+        currencyRatesPartitionJob.schedule();
+
+        verify(taskScheduler).scheduleWithFixedDelay(currencyRatesPartitionJob, TEST_INTERVAL);
+    }
+
+    @Test
+    void shouldNotScheduleRunsWhenDisabled() {
+        new CurrencyRatesPartitionJob(jdbcTemplate, leaderElection, taskScheduler, false, TEST_INTERVAL, TEST_MONTHS_AHEAD)
+                .schedule();
+    }
+
+    @Test
+    void shouldCreatePartitionsAheadWhenNodeIsLeader() {
+        when(leaderElection.isLeader()).thenReturn(true);
+
+        currencyRatesPartitionJob.run();
+
+        var today = LocalDate.now();
+        verify(jdbcTemplate).queryForList(CurrencyRatesPartitionJob.CREATE_PARTITIONS_QUERY, today, today.plusMonths(TEST_MONTHS_AHEAD));
+    }
+
+    @Test
+    void shouldNotCreatePartitionsWhenAnotherNodeIsLeader() {
+        when(leaderElection.isLeader()).thenReturn(false);
+
+        currencyRatesPartitionJob.run();
+    }
+}
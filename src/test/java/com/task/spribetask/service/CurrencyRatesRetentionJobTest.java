@@ -0,0 +1,217 @@
+package com.task.spribetask.service;
+
+import com.task.spribetask.cluster.LeaderElection;
+import com.task.spribetask.dto.DeletedBatch;
+import com.task.spribetask.metrics.CurrencyMetrics;
+import com.task.spribetask.repository.CurrencyRatesRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CurrencyRatesRetentionJobTest {
+
+    private static final int TEST_BATCH_SIZE = 2;
+    private static final LocalDateTime TEST_NOW = LocalDateTime.of(2024, 6, 10, 0, 0);
+    private static final LocalDateTime TEST_RAW_CUTOFF = TEST_NOW.minusDays(7);
+    private static final LocalDateTime TEST_HOURLY_CUTOFF = TEST_NOW.minusDays(90);
+    private static final String PARTITION_2024_04 = "currencies_rates_2024_04";
+    private static final String PARTITION_2024_05 = "currencies_rates_2024_05";
+    private static final String PARTITION_2024_06 = "currencies_rates_2024_06";
+    private static final String PARTITION_DEFAULT = "currencies_rates_default";
+    private static final String DETACH_PARTITION = "alter table currencies_rates detach partition ";
+
+    @Mock
+    private CurrencyRatesRepository currencyRatesRepository;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private LeaderElection leaderElection;
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    private MeterRegistry meterRegistry;
+    private CurrencyRatesRetentionJob currencyRatesRetentionJob;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        currencyRatesRetentionJob = new CurrencyRatesRetentionJob(currencyRatesRepository, jdbcTemplate, transactionTemplate,
+                leaderElection, taskScheduler, new CurrencyMetrics(meterRegistry), true, Duration.ofHours(1),
+                Duration.ofDays(7), Duration.ofDays(90), TEST_BATCH_SIZE, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        verifyNoMoreInteractions(currencyRatesRepository, jdbcTemplate, transactionTemplate, leaderElection, taskScheduler);
+    }
+
+    @Test
+    void shouldNotCompactWhenAnotherNodeIsLeader() {
+        when(leaderElection.isLeader()).thenReturn(false);
+
+        currencyRatesRetentionJob.run();
+    }
+
+    @Test
+    void shouldDropPartitionsOutOfRetentionAndDeleteRestInBatches() {
+        mockLatestDateTimes(TEST_NOW.minusHours(1));
+        mockPartitions(true, PARTITION_2024_04, PARTITION_2024_05, PARTITION_2024_06, PARTITION_DEFAULT);
+        when(jdbcTemplate.queryForObject(CurrencyRatesRetentionJob.PARTITION_SIZE_QUERY, Long.class, PARTITION_2024_04)).thenReturn(8192L);
+        when(jdbcTemplate.queryForObject(CurrencyRatesRetentionJob.PARTITION_SIZE_QUERY, Long.class, PARTITION_2024_05)).thenReturn(16384L);
+        runTransactionCallbacks();
+        when(currencyRatesRepository.deleteRatesBefore(TEST_RAW_CUTOFF, TEST_BATCH_SIZE))
+                .thenReturn(buildDeletedBatch(2, 200), buildDeletedBatch(1, 100));
+        when(currencyRatesRepository.deleteOhlcBefore("HOUR", TEST_HOURLY_CUTOFF, TEST_BATCH_SIZE))
+                .thenReturn(buildDeletedBatch(0, 0));
+
+        var results = currencyRatesRetentionJob.compact(TEST_NOW);
+
+        assertThat(results).containsExactly(
+                new CurrencyRatesRetentionJob.RetentionResult(CurrencyRatesRetentionJob.RATES_TABLE, 2, 3, 8192 + 16384 + 300),
+                new CurrencyRatesRetentionJob.RetentionResult(CurrencyRatesRetentionJob.OHLC_TABLE, 0, 0, 0));
+        verify(transactionTemplate, times(2)).executeWithoutResult(any());
+        verify(jdbcTemplate, times(2)).execute("set local lock_timeout = 5000");
+        verify(jdbcTemplate).execute(DETACH_PARTITION + PARTITION_2024_04);
+        verify(jdbcTemplate).execute(DETACH_PARTITION + PARTITION_2024_05);
+        verify(jdbcTemplate).execute("drop table " + PARTITION_2024_04);
+        verify(jdbcTemplate).execute("drop table " + PARTITION_2024_05);
+        verify(currencyRatesRepository, times(2)).deleteRatesBefore(TEST_RAW_CUTOFF, TEST_BATCH_SIZE);
+        assertThat(meterRegistry.get("currency.retention.reclaimed.bytes")
+                .tag("table", CurrencyRatesRetentionJob.RATES_TABLE).counter().count()).isEqualTo(8192 + 16384 + 300);
+    }
+
+    @Test
+    void shouldKeepPartitionWithLatestRatesOfCurrencyNotRefreshedForLongerThanRetention() {
+        // the stale currency doesn't move the cutoff of other currencies
+        mockLatestDateTimes(TEST_NOW.minusHours(1), LocalDateTime.of(2024, 5, 15, 0, 0));
+        mockPartitions(true, PARTITION_2024_04, PARTITION_2024_05, PARTITION_2024_06, PARTITION_DEFAULT);
+        when(jdbcTemplate.queryForObject(CurrencyRatesRetentionJob.PARTITION_SIZE_QUERY, Long.class, PARTITION_2024_04)).thenReturn(8192L);
+        runTransactionCallbacks();
+        when(currencyRatesRepository.deleteRatesBefore(TEST_RAW_CUTOFF, TEST_BATCH_SIZE)).thenReturn(buildDeletedBatch(1, 100));
+        when(currencyRatesRepository.deleteOhlcBefore("HOUR", TEST_HOURLY_CUTOFF, TEST_BATCH_SIZE)).thenReturn(buildDeletedBatch(0, 0));
+
+        var results = currencyRatesRetentionJob.compact(TEST_NOW);
+
+        assertThat(results.get(0)).isEqualTo(
+                new CurrencyRatesRetentionJob.RetentionResult(CurrencyRatesRetentionJob.RATES_TABLE, 1, 1, 8192 + 100));
+        verify(transactionTemplate).executeWithoutResult(any());
+        verify(jdbcTemplate).execute("set local lock_timeout = 5000");
+        verify(jdbcTemplate).execute(DETACH_PARTITION + PARTITION_2024_04);
+        verify(jdbcTemplate).execute("drop table " + PARTITION_2024_04);
+    }
+
+    @Test
+    void shouldDetachPartitionConcurrentlyWhenThereIsNoDefaultPartition() {
+        mockLatestDateTimes(TEST_NOW.minusHours(1));
+        mockPartitions(false, PARTITION_2024_05, PARTITION_2024_06);
+        when(jdbcTemplate.queryForObject(CurrencyRatesRetentionJob.PARTITION_SIZE_QUERY, Long.class, PARTITION_2024_05)).thenReturn(16384L);
+        when(currencyRatesRepository.deleteRatesBefore(TEST_RAW_CUTOFF, TEST_BATCH_SIZE)).thenReturn(buildDeletedBatch(0, 0));
+        when(currencyRatesRepository.deleteOhlcBefore("HOUR", TEST_HOURLY_CUTOFF, TEST_BATCH_SIZE)).thenReturn(buildDeletedBatch(0, 0));
+
+        var results = currencyRatesRetentionJob.compact(TEST_NOW);
+
+        assertThat(results.get(0)).isEqualTo(
+                new CurrencyRatesRetentionJob.RetentionResult(CurrencyRatesRetentionJob.RATES_TABLE, 1, 0, 16384));
+        verify(jdbcTemplate).execute(DETACH_PARTITION + PARTITION_2024_05 + " concurrently");
+        verify(jdbcTemplate).execute("drop table " + PARTITION_2024_05);
+    }
+
+    @Test
+    void shouldFinalizeInterruptedConcurrentDetach() {
+        mockLatestDateTimes(TEST_NOW.minusHours(1));
+        when(jdbcTemplate.queryForObject(CurrencyRatesRetentionJob.DEFAULT_PARTITION_QUERY, Boolean.class)).thenReturn(false);
+        when(jdbcTemplate.query(eq(CurrencyRatesRetentionJob.PARTITIONS_QUERY), any(RowMapper.class)))
+                .thenReturn(List.of(new CurrencyRatesRetentionJob.Partition(PARTITION_2024_05, true)));
+        when(jdbcTemplate.queryForObject(CurrencyRatesRetentionJob.PARTITION_SIZE_QUERY, Long.class, PARTITION_2024_05)).thenReturn(16384L);
+        when(currencyRatesRepository.deleteRatesBefore(TEST_RAW_CUTOFF, TEST_BATCH_SIZE)).thenReturn(buildDeletedBatch(0, 0));
+        when(currencyRatesRepository.deleteOhlcBefore("HOUR", TEST_HOURLY_CUTOFF, TEST_BATCH_SIZE)).thenReturn(buildDeletedBatch(0, 0));
+
+        currencyRatesRetentionJob.compact(TEST_NOW);
+
+        verify(jdbcTemplate).execute(DETACH_PARTITION + PARTITION_2024_05 + " finalize");
+        verify(jdbcTemplate).execute("drop table " + PARTITION_2024_05);
+    }
+
+    @Test
+    void shouldNotCountPartitionWhenItCouldNotBeDropped() {
+        mockLatestDateTimes(TEST_NOW.minusHours(1));
+        mockPartitions(true, PARTITION_2024_05, PARTITION_2024_06);
+        when(jdbcTemplate.queryForObject(CurrencyRatesRetentionJob.PARTITION_SIZE_QUERY, Long.class, PARTITION_2024_05)).thenReturn(16384L);
+        doThrow(new CannotAcquireLockException("lock timeout")).when(transactionTemplate).executeWithoutResult(any());
+        when(currencyRatesRepository.deleteRatesBefore(TEST_RAW_CUTOFF, TEST_BATCH_SIZE)).thenReturn(buildDeletedBatch(0, 0));
+        when(currencyRatesRepository.deleteOhlcBefore("HOUR", TEST_HOURLY_CUTOFF, TEST_BATCH_SIZE)).thenReturn(buildDeletedBatch(2, 80), buildDeletedBatch(0, 0));
+
+        var results = currencyRatesRetentionJob.compact(TEST_NOW);
+
+        assertThat(results).containsExactly(
+                new CurrencyRatesRetentionJob.RetentionResult(CurrencyRatesRetentionJob.RATES_TABLE, 0, 0, 0),
+                new CurrencyRatesRetentionJob.RetentionResult(CurrencyRatesRetentionJob.OHLC_TABLE, 0, 2, 80));
+        verify(transactionTemplate).executeWithoutResult(any());
+        verify(currencyRatesRepository, times(2)).deleteOhlcBefore("HOUR", TEST_HOURLY_CUTOFF, TEST_BATCH_SIZE);
+    }
+
+    @Test
+    void shouldOnlyDeleteHourlyOhlcWhenThereAreNoRates() {
+        when(leaderElection.isLeader()).thenReturn(true);
+        when(jdbcTemplate.queryForList(CurrencyRatesRetentionJob.LATEST_DATE_TIMES_QUERY, LocalDateTime.class)).thenReturn(List.of());
+        when(currencyRatesRepository.deleteOhlcBefore(eq("HOUR"), any(), eq(TEST_BATCH_SIZE))).thenReturn(buildDeletedBatch(0, 0));
+
+        currencyRatesRetentionJob.run();
+    }
+
+    private void mockLatestDateTimes(LocalDateTime... latestDateTimes) {
+        when(jdbcTemplate.queryForList(CurrencyRatesRetentionJob.LATEST_DATE_TIMES_QUERY, LocalDateTime.class))
+                .thenReturn(List.of(latestDateTimes));
+    }
+
+    private void mockPartitions(boolean hasDefaultPartition, String... partitions) {
+        when(jdbcTemplate.queryForObject(CurrencyRatesRetentionJob.DEFAULT_PARTITION_QUERY, Boolean.class)).thenReturn(hasDefaultPartition);
+        when(jdbcTemplate.query(eq(CurrencyRatesRetentionJob.PARTITIONS_QUERY), any(RowMapper.class)))
+                .thenReturn(Stream.of(partitions).map(partition -> new CurrencyRatesRetentionJob.Partition(partition, false)).toList());
+    }
+
+    private void runTransactionCallbacks() {
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    private static DeletedBatch buildDeletedBatch(long rows, long bytes) {
+        return new DeletedBatch() {
+            @Override
+            public Long getRows() {
+                return rows;
+            }
+
+            @Override
+            public Long getBytes() {
+                return bytes;
+            }
+        };
+    }
+}
@@ -1,72 +1,398 @@
 package com.task.spribetask.service;
 
+import com.task.spribetask.cluster.LeaderElection;
+import com.task.spribetask.cluster.RatesChangeNotifier;
 import com.task.spribetask.dto.CurrencyRates;
 import com.task.spribetask.dto.external.APIResponse;
 import com.task.spribetask.entity.CurrencyRatesEntity;
 import com.task.spribetask.external.ExternalAPIClient;
+import com.task.spribetask.metrics.CurrencyMetrics;
+import com.task.spribetask.rates.BaseRates;
+import com.task.spribetask.rates.RateTable;
 import com.task.spribetask.repository.CurrencyRatesRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.convert.ConversionService;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 public class CurrencyRatesRetrieveTaskTest {
 
-    private static final String TEST_CURRENCY = "USD";
+    private static final String TEST_CURRENCY_USD = "USD";
+    private static final String TEST_CURRENCY_GBP = "GBP";
     private static final String TEST_BASE = "EUR";
+    private static final BaseRates TEST_BASE_RATES = new BaseRates(TEST_BASE, 0,
+            RateTable.of(Map.of(TEST_BASE, 1.0, TEST_CURRENCY_USD, 1.25, TEST_CURRENCY_GBP, 0.8)));
+    private static final LocalDateTime TEST_DATE_TIME = LocalDateTime.of(2024, 4, 2, 8, 23);
 
     @Mock
     private ExternalAPIClient externalAPIClient;
     @Mock
-    private ConcurrentHashMap<String, CurrencyRates> currencyRatesMap;
+    private ConcurrentHashMap<String, CurrencyRatesSnapshot> currencyRatesMap;
     @Mock
     private CurrencyRatesRepository currencyRatesRepository;
     @Mock
     private ConversionService conversionService;
+    @Mock
+    private CurrencyRatesSnapshotFactory currencyRatesSnapshotFactory;
+    @Mock
+    private ApplicationEventPublisher applicationEventPublisher;
+    @Mock
+    private LeaderElection leaderElection;
+    @Mock
+    private RatesChangeNotifier ratesChangeNotifier;
+    @Captor
+    private ArgumentCaptor<Iterable<CurrencyRatesEntity>> currencyRatesEntitiesCaptor;
 
     private CurrencyRatesRetrieveTask currencyRatesRetrieveTask;
 
     @BeforeEach
     void setUp() {
-        currencyRatesRetrieveTask = new CurrencyRatesRetrieveTask(TEST_CURRENCY, currencyRatesMap,
-                currencyRatesRepository, conversionService, externalAPIClient);
+        currencyRatesRetrieveTask = new CurrencyRatesRetrieveTask(currencyRatesMap,
+                currencyRatesRepository, conversionService, currencyRatesSnapshotFactory, externalAPIClient,
+                new CurrencyMetrics(new SimpleMeterRegistry()), applicationEventPublisher, leaderElection,
+                ratesChangeNotifier);
     }
 
     @AfterEach
     void tearDown() {
-        verifyNoMoreInteractions(currencyRatesMap, currencyRatesRepository, conversionService, externalAPIClient);
+        verifyNoMoreInteractions(currencyRatesMap, currencyRatesRepository, conversionService, currencyRatesSnapshotFactory,
+                externalAPIClient, applicationEventPublisher, leaderElection, ratesChangeNotifier);
+    }
+
+    @Test
+    void shouldRegisterCurrencyOnlyOnce() {
+        assertThat(currencyRatesRetrieveTask.register(TEST_CURRENCY_USD)).isTrue();
+        assertThat(currencyRatesRetrieveTask.register(TEST_CURRENCY_USD)).isFalse();
+    }
+
+    @Test
+    void shouldNotCallExternalAPIWhenThereAreNoRegisteredCurrencies() {
+        when(leaderElection.isLeader()).thenReturn(true);
+
+        currencyRatesRetrieveTask.run();
+
+        verify(leaderElection).isLeader();
+    }
+
+    @Test
+    void shouldNotCallExternalAPIWhenAnotherNodeIsLeader() {
+        currencyRatesRetrieveTask.register(TEST_CURRENCY_USD);
+        when(leaderElection.isLeader()).thenReturn(false);
+
+        currencyRatesRetrieveTask.run();
+
+        verify(leaderElection).isLeader();
+    }
+
+    @Test
+    void shouldRegisterCurrenciesFromDBOnSyncWhenNodeIsLeader() {
+        when(leaderElection.isLeader()).thenReturn(true);
+        when(currencyRatesRepository.findDistinctCurrencies()).thenReturn(List.of(TEST_CURRENCY_USD));
+
+        currencyRatesRetrieveTask.syncFromDatabase();
+
+        assertThat(currencyRatesRetrieveTask.register(TEST_CURRENCY_USD)).isFalse();
+        verify(leaderElection).isLeader();
+        verify(currencyRatesRepository).findDistinctCurrencies();
+    }
+
+    @Test
+    void shouldApplyRatesSavedByAnotherNode() {
+        var now = LocalDateTime.now();
+        var usdRatesEntity = buildCurrencyRatesEntity(TEST_CURRENCY_USD, now);
+        var usdRates = new CurrencyRates(TEST_CURRENCY_USD, now, null);
+        var usdSnapshot = buildCurrencyRatesSnapshot(usdRates);
+
+        when(currencyRatesRepository.findLatestRatesForCurrencies(List.of(TEST_CURRENCY_USD))).thenReturn(List.of(usdRatesEntity));
+        when(conversionService.convert(usdRatesEntity, CurrencyRates.class)).thenReturn(usdRates);
+        when(currencyRatesSnapshotFactory.create(usdRates, null)).thenReturn(usdSnapshot);
+
+        currencyRatesRetrieveTask.applySavedRates(List.of(TEST_CURRENCY_USD));
+
+        assertThat(currencyRatesRetrieveTask.register(TEST_CURRENCY_USD)).isFalse();
+        verify(currencyRatesRepository).findLatestRatesForCurrencies(List.of(TEST_CURRENCY_USD));
+        verify(currencyRatesMap).get(TEST_CURRENCY_USD);
+        verify(currencyRatesMap).put(TEST_CURRENCY_USD, usdSnapshot);
+        verify(applicationEventPublisher).publishEvent(new CurrencyRatesPublishedEvent(usdSnapshot));
+    }
+
+    @Test
+    void shouldUpdateOnlyNewerRatesOnSyncWhenNodeIsFollower() {
+        var now = LocalDateTime.now();
+        var usdRatesEntity = buildCurrencyRatesEntity(TEST_CURRENCY_USD, now);
+        var gbpRatesEntity = buildCurrencyRatesEntity(TEST_CURRENCY_GBP, now);
+        var usdRates = new CurrencyRates(TEST_CURRENCY_USD, now, null);
+        var previousUsdSnapshot = buildCurrencyRatesSnapshot(new CurrencyRates(TEST_CURRENCY_USD, now.minusHours(1), null));
+        var usdSnapshot = buildCurrencyRatesSnapshot(usdRates);
+        var gbpSnapshot = buildCurrencyRatesSnapshot(new CurrencyRates(TEST_CURRENCY_GBP, now, null));
+
+        when(leaderElection.isLeader()).thenReturn(false);
+        when(currencyRatesRepository.findLatestRatesForAllCurrencies()).thenReturn(List.of(usdRatesEntity, gbpRatesEntity));
+        when(currencyRatesMap.get(TEST_CURRENCY_USD)).thenReturn(previousUsdSnapshot);
+        when(currencyRatesMap.get(TEST_CURRENCY_GBP)).thenReturn(gbpSnapshot);
+        when(conversionService.convert(usdRatesEntity, CurrencyRates.class)).thenReturn(usdRates);
+        when(currencyRatesSnapshotFactory.create(usdRates, previousUsdSnapshot)).thenReturn(usdSnapshot);
+
+        currencyRatesRetrieveTask.syncFromDatabase();
+
+        verify(leaderElection).isLeader();
+        verify(currencyRatesRepository).findLatestRatesForAllCurrencies();
+        verify(currencyRatesMap).get(TEST_CURRENCY_USD);
+        verify(currencyRatesMap).get(TEST_CURRENCY_GBP);
+        verify(currencyRatesMap).put(TEST_CURRENCY_USD, usdSnapshot);
+        verify(applicationEventPublisher).publishEvent(new CurrencyRatesPublishedEvent(usdSnapshot));
     }
 
     @Test
-    void shouldRetrieveCurrencyRates() {
+    void shouldRetrieveCurrencyRatesOnceForAllRegisteredCurrencies() {
         var apiResponse = new APIResponse(true, 0, TEST_BASE, null, null, null);
-        var currencyRatesEntity = new CurrencyRatesEntity();
-        var currencyRates = new CurrencyRates(TEST_CURRENCY, null, null);
+        var usdRatesEntity = new CurrencyRatesEntity();
+        var gbpRatesEntity = new CurrencyRatesEntity();
+        var usdRates = new CurrencyRates(TEST_CURRENCY_USD, null, null);
+        var gbpRates = new CurrencyRates(TEST_CURRENCY_GBP, null, null);
+        var usdSnapshot = buildCurrencyRatesSnapshot(usdRates);
+        var gbpSnapshot = buildCurrencyRatesSnapshot(gbpRates);
 
-        when(externalAPIClient.getLatestRates()).thenReturn(java.util.Optional.of(apiResponse));
-        when(conversionService.convert(apiResponse, CurrencyRatesEntity.class)).thenReturn(currencyRatesEntity);
-        when(conversionService.convert(currencyRatesEntity, CurrencyRates.class)).thenReturn(currencyRates);
+        currencyRatesRetrieveTask.register(TEST_CURRENCY_USD);
+        currencyRatesRetrieveTask.register(TEST_CURRENCY_GBP);
+        when(leaderElection.isLeader()).thenReturn(true);
+        when(externalAPIClient.getLatestRates()).thenReturn(CompletableFuture.completedFuture(apiResponse));
+        when(conversionService.convert(apiResponse, BaseRates.class)).thenReturn(TEST_BASE_RATES);
+        when(conversionService.convert(TEST_BASE_RATES.rebase(TEST_CURRENCY_USD).get(), CurrencyRatesEntity.class)).thenReturn(usdRatesEntity);
+        when(conversionService.convert(TEST_BASE_RATES.rebase(TEST_CURRENCY_GBP).get(), CurrencyRatesEntity.class)).thenReturn(gbpRatesEntity);
+        when(conversionService.convert(TEST_BASE_RATES.rebase(TEST_CURRENCY_USD).get(), CurrencyRates.class)).thenReturn(usdRates);
+        when(conversionService.convert(TEST_BASE_RATES.rebase(TEST_CURRENCY_GBP).get(), CurrencyRates.class)).thenReturn(gbpRates);
+        when(currencyRatesSnapshotFactory.create(usdRates, null)).thenReturn(usdSnapshot);
+        when(currencyRatesSnapshotFactory.create(gbpRates, null)).thenReturn(gbpSnapshot);
 
         currencyRatesRetrieveTask.run();
 
-        verify(currencyRatesRepository).save(currencyRatesEntity);
-        verify(currencyRatesMap).put(TEST_CURRENCY, currencyRates);
+        verify(leaderElection).isLeader();
+        verify(externalAPIClient, times(1)).getLatestRates();
+        verify(currencyRatesRepository).saveAll(currencyRatesEntitiesCaptor.capture());
+        assertThat(currencyRatesEntitiesCaptor.getValue()).containsExactlyInAnyOrder(usdRatesEntity, gbpRatesEntity);
+        verify(currencyRatesRepository).upsertOhlc(argThat(currencies ->
+                currencies.size() == 2 && currencies.containsAll(List.of(TEST_CURRENCY_USD, TEST_CURRENCY_GBP))), isNull());
+        verify(ratesChangeNotifier).notifyRatesSaved(argThat(currencies ->
+                currencies.size() == 2 && currencies.containsAll(List.of(TEST_CURRENCY_USD, TEST_CURRENCY_GBP))));
+        verify(currencyRatesMap).get(TEST_CURRENCY_USD);
+        verify(currencyRatesMap).get(TEST_CURRENCY_GBP);
+        verify(currencyRatesMap).put(TEST_CURRENCY_USD, usdSnapshot);
+        verify(currencyRatesMap).put(TEST_CURRENCY_GBP, gbpSnapshot);
+        verify(applicationEventPublisher).publishEvent(new CurrencyRatesPublishedEvent(usdSnapshot));
+        verify(applicationEventPublisher).publishEvent(new CurrencyRatesPublishedEvent(gbpSnapshot));
+    }
+
+    @Test
+    void shouldRetrieveCurrencyRatesForGivenCurrency() {
+        var apiResponse = new APIResponse(true, 0, TEST_BASE, null, null, null);
+        var currencyRatesEntity = buildCurrencyRatesEntity(TEST_CURRENCY_USD, TEST_DATE_TIME);
+        var currencyRates = new CurrencyRates(TEST_CURRENCY_USD, null, null);
+        var currencyRatesSnapshot = buildCurrencyRatesSnapshot(currencyRates);
+        var previousCurrencyRatesSnapshot = buildCurrencyRatesSnapshot(new CurrencyRates(TEST_CURRENCY_USD, null, null));
+
+        when(currencyRatesMap.get(TEST_CURRENCY_USD)).thenReturn(previousCurrencyRatesSnapshot);
+        when(externalAPIClient.getLatestRates()).thenReturn(CompletableFuture.completedFuture(apiResponse));
+        when(conversionService.convert(apiResponse, BaseRates.class)).thenReturn(TEST_BASE_RATES);
+        when(conversionService.convert(TEST_BASE_RATES.rebase(TEST_CURRENCY_USD).get(), CurrencyRatesEntity.class)).thenReturn(currencyRatesEntity);
+        when(conversionService.convert(TEST_BASE_RATES.rebase(TEST_CURRENCY_USD).get(), CurrencyRates.class)).thenReturn(currencyRates);
+        when(currencyRatesSnapshotFactory.create(currencyRates, previousCurrencyRatesSnapshot)).thenReturn(currencyRatesSnapshot);
+
+        currencyRatesRetrieveTask.retrieve(List.of(TEST_CURRENCY_USD));
+
+        verify(currencyRatesRepository).saveAll(List.of(currencyRatesEntity));
+        verify(currencyRatesRepository).upsertOhlc(List.of(TEST_CURRENCY_USD), TEST_DATE_TIME);
+        verify(ratesChangeNotifier).notifyRatesSaved(List.of(TEST_CURRENCY_USD));
+        verify(currencyRatesMap).get(TEST_CURRENCY_USD);
+        verify(currencyRatesMap).put(TEST_CURRENCY_USD, currencyRatesSnapshot);
+        verify(applicationEventPublisher).publishEvent(new CurrencyRatesPublishedEvent(currencyRatesSnapshot));
+    }
+
+    @Test
+    void shouldRegisterAddedCurrencyWhenItsRatesWerePublished() {
+        var apiResponse = new APIResponse(true, 0, TEST_BASE, null, null, null);
+        var currencyRatesEntity = buildCurrencyRatesEntity(TEST_CURRENCY_USD, TEST_DATE_TIME);
+        var currencyRates = new CurrencyRates(TEST_CURRENCY_USD, null, null);
+        var currencyRatesSnapshot = buildCurrencyRatesSnapshot(currencyRates);
+
+        when(externalAPIClient.getLatestRates()).thenReturn(CompletableFuture.completedFuture(apiResponse));
+        when(conversionService.convert(apiResponse, BaseRates.class)).thenReturn(TEST_BASE_RATES);
+        when(conversionService.convert(TEST_BASE_RATES.rebase(TEST_CURRENCY_USD).get(), CurrencyRatesEntity.class)).thenReturn(currencyRatesEntity);
+        when(conversionService.convert(TEST_BASE_RATES.rebase(TEST_CURRENCY_USD).get(), CurrencyRates.class)).thenReturn(currencyRates);
+        when(currencyRatesSnapshotFactory.create(currencyRates, null)).thenReturn(currencyRatesSnapshot);
+        when(leaderElection.isLeader()).thenReturn(true);
+
+        assertThat(currencyRatesRetrieveTask.add(TEST_CURRENCY_USD)).isTrue();
+
+        assertThat(currencyRatesRetrieveTask.add(TEST_CURRENCY_USD)).isFalse();
+        assertThat(currencyRatesRetrieveTask.register(TEST_CURRENCY_USD)).isFalse();
+        verify(currencyRatesRepository).saveAll(List.of(currencyRatesEntity));
+        verify(currencyRatesRepository).upsertOhlc(List.of(TEST_CURRENCY_USD), TEST_DATE_TIME);
+        verify(ratesChangeNotifier).notifyRatesSaved(List.of(TEST_CURRENCY_USD));
+        verify(currencyRatesMap).get(TEST_CURRENCY_USD);
+        verify(currencyRatesMap).put(TEST_CURRENCY_USD, currencyRatesSnapshot);
+        verify(applicationEventPublisher).publishEvent(new CurrencyRatesPublishedEvent(currencyRatesSnapshot));
+    }
+
+    @Test
+    void shouldNotRegisterAddedCurrencyWhenExternalAPIHasNoRateForIt() {
+        var apiResponse = new APIResponse(true, 0, TEST_BASE, null, null, null);
+
+        when(externalAPIClient.getLatestRates()).thenReturn(CompletableFuture.completedFuture(apiResponse));
+        when(conversionService.convert(apiResponse, BaseRates.class)).thenReturn(TEST_BASE_RATES);
+        when(leaderElection.isLeader()).thenReturn(true);
+
+        assertThat(currencyRatesRetrieveTask.add("NotValid")).isTrue();
+
+        assertThat(currencyRatesRetrieveTask.register("NotValid")).isTrue();
+    }
+
+    @Test
+    void shouldNotRegisterAddedCurrencyWhenExternalAPICallFailed() {
+        when(externalAPIClient.getLatestRates()).thenReturn(CompletableFuture.failedFuture(new RuntimeException("Boo")));
+        when(leaderElection.isLeader()).thenReturn(true);
+
+        assertThat(currencyRatesRetrieveTask.add(TEST_CURRENCY_USD)).isTrue();
+
+        assertThat(currencyRatesRetrieveTask.register(TEST_CURRENCY_USD)).isTrue();
+    }
+
+    @Test
+    void shouldPassAddedCurrencyToLeaderWithoutCallingExternalAPIWhenNodeIsFollower() {
+        when(leaderElection.isLeader()).thenReturn(false);
+        when(ratesChangeNotifier.notifyCurrencyAdded(TEST_CURRENCY_USD)).thenReturn(true);
+
+        assertThat(currencyRatesRetrieveTask.add(TEST_CURRENCY_USD)).isTrue();
+
+        assertThat(currencyRatesRetrieveTask.register(TEST_CURRENCY_USD)).isTrue();
+    }
+
+    @Test
+    void shouldFailToAddCurrencyWhenItCannotBePassedToLeader() {
+        when(leaderElection.isLeader()).thenReturn(false);
+        when(ratesChangeNotifier.notifyCurrencyAdded(TEST_CURRENCY_USD)).thenReturn(false);
+
+        assertThatThrownBy(() -> currencyRatesRetrieveTask.add(TEST_CURRENCY_USD)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void shouldIgnoreCurrencyAddedOnOtherNodeWhenNodeIsFollower() {
+        when(leaderElection.isLeader()).thenReturn(false);
+
+        currencyRatesRetrieveTask.addFromOtherNode(TEST_CURRENCY_USD);
+    }
+
+    @Test
+    void shouldRetrieveRatesOfCurrencyAddedOnOtherNodeWhenNodeIsLeader() {
+        when(leaderElection.isLeader()).thenReturn(true);
+        when(externalAPIClient.getLatestRates()).thenReturn(CompletableFuture.failedFuture(new RuntimeException("Boo")));
+
+        currencyRatesRetrieveTask.addFromOtherNode(TEST_CURRENCY_USD);
+    }
+
+    @Test
+    void shouldPublishCurrencyRatesWhenOhlcRollUpFailed() {
+        var apiResponse = new APIResponse(true, 0, TEST_BASE, null, null, null);
+        var currencyRatesEntity = buildCurrencyRatesEntity(TEST_CURRENCY_USD, TEST_DATE_TIME);
+        var currencyRates = new CurrencyRates(TEST_CURRENCY_USD, null, null);
+        var currencyRatesSnapshot = buildCurrencyRatesSnapshot(currencyRates);
+
+        when(externalAPIClient.getLatestRates()).thenReturn(CompletableFuture.completedFuture(apiResponse));
+        when(conversionService.convert(apiResponse, BaseRates.class)).thenReturn(TEST_BASE_RATES);
+        when(conversionService.convert(TEST_BASE_RATES.rebase(TEST_CURRENCY_USD).get(), CurrencyRatesEntity.class)).thenReturn(currencyRatesEntity);
+        when(conversionService.convert(TEST_BASE_RATES.rebase(TEST_CURRENCY_USD).get(), CurrencyRates.class)).thenReturn(currencyRates);
+        when(currencyRatesRepository.upsertOhlc(List.of(TEST_CURRENCY_USD), TEST_DATE_TIME)).thenThrow(new RuntimeException("Boo"));
+        when(currencyRatesSnapshotFactory.create(currencyRates, null)).thenReturn(currencyRatesSnapshot);
+
+        currencyRatesRetrieveTask.retrieve(List.of(TEST_CURRENCY_USD));
+
+        verify(currencyRatesRepository).saveAll(List.of(currencyRatesEntity));
+        verify(ratesChangeNotifier).notifyRatesSaved(List.of(TEST_CURRENCY_USD));
+        verify(currencyRatesMap).get(TEST_CURRENCY_USD);
+        verify(currencyRatesMap).put(TEST_CURRENCY_USD, currencyRatesSnapshot);
+        verify(applicationEventPublisher).publishEvent(new CurrencyRatesPublishedEvent(currencyRatesSnapshot));
+    }
+
+    @Test
+    void shouldNotUpdateCurrencyRatesWhenThereIsNoRateForCurrencyInAPIResponse() {
+        var apiResponse = new APIResponse(true, 0, TEST_BASE, null, null, null);
+
+        when(externalAPIClient.getLatestRates()).thenReturn(CompletableFuture.completedFuture(apiResponse));
+        when(conversionService.convert(apiResponse, BaseRates.class)).thenReturn(TEST_BASE_RATES);
+
+        currencyRatesRetrieveTask.retrieve(List.of("NotValid"));
     }
 
     @Test
     void shouldNotRetrieveCurrencyRatesWhenAPIResponseWasNotSuccessful() {
         var apiResponse = new APIResponse(false, 0, TEST_BASE, null, null, null);
 
-        when(externalAPIClient.getLatestRates()).thenReturn(java.util.Optional.of(apiResponse));
+        when(externalAPIClient.getLatestRates()).thenReturn(CompletableFuture.completedFuture(apiResponse));
+
+        currencyRatesRetrieveTask.retrieve(List.of(TEST_CURRENCY_USD));
+    }
+
+    @Test
+    void shouldNotUpdateCurrencyRatesWhenExternalAPICallFailed() {
+        when(externalAPIClient.getLatestRates()).thenReturn(CompletableFuture.failedFuture(new RuntimeException("Boo")));
+
+        var result = currencyRatesRetrieveTask.retrieve(List.of(TEST_CURRENCY_USD));
+
+        assertThat(result).isCompleted();
+    }
+
+    @Test
+    void shouldSkipRunWhenPreviousRunIsStillInProgress() {
+        currencyRatesRetrieveTask.register(TEST_CURRENCY_USD);
+        when(leaderElection.isLeader()).thenReturn(true);
+        when(externalAPIClient.getLatestRates()).thenReturn(new CompletableFuture<>());
 
         currencyRatesRetrieveTask.run();
+        currencyRatesRetrieveTask.run();
+
+        verify(leaderElection, times(2)).isLeader();
+        verify(externalAPIClient, times(1)).getLatestRates();
+    }
+
+    @Test
+    void shouldRunNextRefreshWhenExternalAPICallThrewSynchronously() {
+        currencyRatesRetrieveTask.register(TEST_CURRENCY_USD);
+        when(leaderElection.isLeader()).thenReturn(true);
+        when(externalAPIClient.getLatestRates()).thenThrow(new IllegalArgumentException("Boo"));
+
+        currencyRatesRetrieveTask.run();
+        currencyRatesRetrieveTask.run();
+
+        verify(leaderElection, times(2)).isLeader();
+        verify(externalAPIClient, times(2)).getLatestRates();
+    }
+
+    private static CurrencyRatesEntity buildCurrencyRatesEntity(String currency, LocalDateTime dateTime) {
+        var currencyRatesEntity = new CurrencyRatesEntity();
+        currencyRatesEntity.setCurrency(currency);
+        currencyRatesEntity.setDateTime(dateTime);
+        return currencyRatesEntity;
+    }
+
+    private static CurrencyRatesSnapshot buildCurrencyRatesSnapshot(CurrencyRates currencyRates) {
+        return new CurrencyRatesSnapshot(currencyRates, null, null, null, null, 0, 0, null);
     }
 }
\ No newline at end of file
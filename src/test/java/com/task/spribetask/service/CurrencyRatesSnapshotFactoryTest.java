@@ -0,0 +1,119 @@
+package com.task.spribetask.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.task.spribetask.dto.CurrencyRates;
+import com.task.spribetask.rates.RateTable;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CurrencyRatesSnapshotFactoryTest {
+
+    private static final String TEST_CURRENCY = "USD";
+    private static final LocalDateTime TEST_RATE_DATE_TIME = LocalDateTime.of(LocalDate.of(2024, 4, 2), LocalTime.NOON);
+    private static final RateTable TEST_RATES = RateTable.of(Map.of("EUR", 0.72007));
+    private static final String EXPECTED_JSON = """
+            {"currency":"USD","dateTime":"2024-04-02T12:00:00","rates":{"EUR":0.72007}}""";
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    void shouldCreateSnapshotWithSerializedRates() {
+        var currencyRates = new CurrencyRates(TEST_CURRENCY, TEST_RATE_DATE_TIME, TEST_RATES);
+
+        var snapshot = new CurrencyRatesSnapshotFactory(objectMapper, true).create(currencyRates);
+
+        assertThat(snapshot.currencyRates()).isEqualTo(currencyRates);
+        assertThat(new String(snapshot.json())).isEqualTo(EXPECTED_JSON);
+        assertThat(gunzip(snapshot.gzippedJson())).isEqualTo(snapshot.json());
+        assertThat(snapshot.etag()).matches("\"[0-9a-f]{32}\"");
+        assertThat(snapshot.gzippedEtag()).isEqualTo(snapshot.etag().replaceFirst("\"$", "-gzip\""));
+        assertThat(snapshot.lastModified())
+                .isEqualTo(TEST_RATE_DATE_TIME.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    @Test
+    void shouldCreateSnapshotsWithSameEtagForSameRates() {
+        var factory = new CurrencyRatesSnapshotFactory(objectMapper, true);
+
+        var snapshot = factory.create(new CurrencyRates(TEST_CURRENCY, TEST_RATE_DATE_TIME, TEST_RATES));
+        var sameSnapshot = factory.create(new CurrencyRates(TEST_CURRENCY, TEST_RATE_DATE_TIME, TEST_RATES));
+        var newSnapshot = factory.create(new CurrencyRates(TEST_CURRENCY, TEST_RATE_DATE_TIME.plusHours(1), TEST_RATES));
+
+        assertThat(sameSnapshot.etag()).isEqualTo(snapshot.etag());
+        assertThat(sameSnapshot.version()).isEqualTo(snapshot.version());
+        assertThat(newSnapshot.etag()).isNotEqualTo(snapshot.etag());
+        assertThat(newSnapshot.version()).isNotEqualTo(snapshot.version());
+    }
+
+    @Test
+    void shouldCreateSnapshotWithoutGzippedRatesWhenGzipIsDisabled() {
+        var currencyRates = new CurrencyRates(TEST_CURRENCY, TEST_RATE_DATE_TIME, TEST_RATES);
+
+        var snapshot = new CurrencyRatesSnapshotFactory(objectMapper, false).create(currencyRates);
+
+        assertThat(new String(snapshot.json())).isEqualTo(EXPECTED_JSON);
+        assertThat(snapshot.gzippedJson()).isNull();
+        assertThat(snapshot.gzippedEtag()).isNull();
+    }
+
+    @Test
+    void shouldCreateSnapshotWithDeltaSincePreviousSnapshot() {
+        var factory = new CurrencyRatesSnapshotFactory(objectMapper, false);
+        var previous = factory.create(new CurrencyRates(TEST_CURRENCY, TEST_RATE_DATE_TIME,
+                RateTable.of(Map.of("EUR", 0.72007, "GBP", 0.79))));
+
+        var snapshot = factory.create(new CurrencyRates(TEST_CURRENCY, TEST_RATE_DATE_TIME.plusHours(1),
+                RateTable.of(Map.of("EUR", 0.72011, "GBP", 0.79))), previous);
+
+        assertThat(previous.delta()).isNull();
+        assertThat(snapshot.delta().since()).isEqualTo(previous.version());
+        assertThat(snapshot.delta().version()).isEqualTo(snapshot.version());
+        assertThat(snapshot.delta().rates()).isEqualTo(RateTable.of(Map.of("EUR", 0.72011)));
+        assertThat(snapshot.delta().removed()).isEmpty();
+    }
+
+    @Test
+    void shouldKeepDeltaWhenContentIsNotChanged() {
+        var factory = new CurrencyRatesSnapshotFactory(objectMapper, false);
+        var first = factory.create(new CurrencyRates(TEST_CURRENCY, TEST_RATE_DATE_TIME, RateTable.of(Map.of("EUR", 0.72))));
+        var second = factory.create(new CurrencyRates(TEST_CURRENCY, TEST_RATE_DATE_TIME.plusHours(1), TEST_RATES), first);
+
+        var sameVersion = factory.create(new CurrencyRates(TEST_CURRENCY, TEST_RATE_DATE_TIME.plusHours(1), TEST_RATES), second);
+
+        assertThat(sameVersion.delta()).isSameAs(second.delta());
+    }
+
+    @Test
+    void shouldCreateNewVersionAndDeltaWhenRatesChangedWithoutNewDateTime() {
+        var factory = new CurrencyRatesSnapshotFactory(objectMapper, false);
+        var first = factory.create(new CurrencyRates(TEST_CURRENCY, TEST_RATE_DATE_TIME, RateTable.of(Map.of("EUR", 0.72))));
+        var second = factory.create(new CurrencyRates(TEST_CURRENCY, TEST_RATE_DATE_TIME.plusHours(1), TEST_RATES), first);
+
+        var corrected = factory.create(new CurrencyRates(TEST_CURRENCY, TEST_RATE_DATE_TIME.plusHours(1),
+                RateTable.of(Map.of("EUR", 0.72011))), second);
+
+        assertThat(corrected.lastModified()).isEqualTo(second.lastModified());
+        assertThat(corrected.version()).isNotEqualTo(second.version());
+        assertThat(corrected.delta().since()).isEqualTo(second.version());
+        assertThat(corrected.delta().version()).isEqualTo(corrected.version());
+        assertThat(corrected.delta().rates()).isEqualTo(RateTable.of(Map.of("EUR", 0.72011)));
+    }
+
+    @SneakyThrows
+    private static byte[] gunzip(byte[] bytes) {
+        try (var gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return gzipInputStream.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.task.spribetask.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.task.spribetask.dto.CurrencyRates;
+import com.task.spribetask.rates.RateTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CurrencyRatesSubscriptionServiceTest {
+
+    private static final String TEST_CURRENCY_USD = "USD";
+    private static final String TEST_CURRENCY_GBP = "GBP";
+    private static final LocalDateTime TEST_RATE_DATE_TIME = LocalDateTime.of(2024, 4, 2, 8, 23);
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final CurrencyRatesSnapshotFactory currencyRatesSnapshotFactory = new CurrencyRatesSnapshotFactory(objectMapper, false);
+
+    private CurrencyRatesSubscriptionService currencyRatesSubscriptionService;
+
+    @BeforeEach
+    void setUp() {
+        currencyRatesSubscriptionService = new CurrencyRatesSubscriptionService(objectMapper, Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        currencyRatesSubscriptionService.shutdown();
+    }
+
+    @Test
+    void shouldRegisterSubscriberForEveryCurrency() {
+        currencyRatesSubscriptionService.subscribe(List.of(buildSnapshot(TEST_CURRENCY_USD), buildSnapshot(TEST_CURRENCY_GBP)));
+        currencyRatesSubscriptionService.subscribe(List.of(buildSnapshot(TEST_CURRENCY_USD)));
+
+        assertThat(currencyRatesSubscriptionService.subscribersCount(TEST_CURRENCY_USD)).isEqualTo(2);
+        assertThat(currencyRatesSubscriptionService.subscribersCount(TEST_CURRENCY_GBP)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldIgnoreUpdateWithoutSubscribers() {
+        currencyRatesSubscriptionService.onCurrencyRatesPublished(new CurrencyRatesPublishedEvent(buildSnapshot(TEST_CURRENCY_GBP)));
+
+        assertThat(currencyRatesSubscriptionService.subscribersCount(TEST_CURRENCY_GBP)).isZero();
+    }
+
+    @Test
+    void shouldSerializeDeltaOnceForUpdateWithPreviousVersion() {
+        var previous = buildSnapshot(TEST_CURRENCY_USD);
+        var currencyRatesSnapshot = currencyRatesSnapshotFactory.create(new CurrencyRates(TEST_CURRENCY_USD,
+                TEST_RATE_DATE_TIME.plusHours(1), RateTable.of(Map.of("EUR", 0.72011))), previous);
+
+        var ratesUpdate = CurrencyRatesSubscriptionService.RatesUpdate.of(currencyRatesSnapshot, objectMapper);
+
+        assertThat(ratesUpdate.version()).isEqualTo(currencyRatesSnapshot.version());
+        assertThat(ratesUpdate.deltaData()).isEqualTo("""
+                {"currency":"USD","since":%d,"version":%d,"dateTime":"2024-04-02T09:23:00","rates":{"EUR":0.72011},"removed":[]}"""
+                .formatted(previous.version(), currencyRatesSnapshot.version()));
+        assertThat(ratesUpdate.isDeltaTo(previous.version())).isTrue();
+        // subscriber which missed the previous version gets all rates
+        assertThat(ratesUpdate.isDeltaTo(null)).isFalse();
+        assertThat(ratesUpdate.isDeltaTo(previous.version() + 1)).isFalse();
+    }
+
+    @Test
+    void shouldSendAllRatesForUpdateWithoutPreviousVersion() {
+        var currencyRatesSnapshot = buildSnapshot(TEST_CURRENCY_USD);
+
+        var ratesUpdate = CurrencyRatesSubscriptionService.RatesUpdate.of(currencyRatesSnapshot, objectMapper);
+
+        assertThat(ratesUpdate.deltaData()).isNull();
+        assertThat(ratesUpdate.ratesData()).isEqualTo(new String(currencyRatesSnapshot.json()));
+        assertThat(ratesUpdate.isDeltaTo(null)).isFalse();
+    }
+
+    private CurrencyRatesSnapshot buildSnapshot(String currency) {
+        return currencyRatesSnapshotFactory.create(new CurrencyRates(currency, TEST_RATE_DATE_TIME, RateTable.of(Map.of("EUR", 0.72007))));
+    }
+}
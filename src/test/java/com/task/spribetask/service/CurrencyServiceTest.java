@@ -1,22 +1,31 @@
 package com.task.spribetask.service;
 
+import com.task.spribetask.dto.CurrencyConversion;
 import com.task.spribetask.dto.CurrencyRates;
 import com.task.spribetask.entity.CurrencyRatesEntity;
 import com.task.spribetask.exception.CurrencyServiceException;
+import com.task.spribetask.exception.RatesWarmingUpException;
+import com.task.spribetask.external.CircuitBreaker;
+import com.task.spribetask.metrics.CurrencyMetrics;
+import com.task.spribetask.rates.RateTable;
 import com.task.spribetask.repository.CurrencyRatesRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.core.convert.ConversionService;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.scheduling.TaskScheduler;
 
 import java.time.*;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -27,16 +36,15 @@ import static org.mockito.Mockito.*;
 class CurrencyServiceTest {
 
     private static final Duration TEST_DURATION = Duration.ofMinutes(50);
+    private static final Duration TEST_SYNC_DURATION = Duration.ofMinutes(1);
     private static final String TEST_CURRENCY_USD = "USD";
     private static final String TEST_CURRENCY_EUR = "EUR";
     private static final LocalDate TEST_RATE_DATE = LocalDate.of(2024, 4, 2);
     private static final LocalDateTime TEST_RATE_DATE_TIME = LocalDateTime.of(TEST_RATE_DATE, LocalTime.MAX);
-    private static final Map<String, Double> TEST_RATES = Map.of("GBP", 0.72007, "JPY", 107.346001, "EUR", 0.813399, "BTC", 1.6295132e-5);
+    private static final RateTable TEST_RATES = RateTable.of(Map.of("GBP", 0.72007, "JPY", 107.346001, "EUR", 0.813399, "BTC", 1.6295132e-5));
 
     @Mock
-    private CurrencyRatesRetrieveTask ratesRetrieveTask1;
-    @Mock
-    private CurrencyRatesRetrieveTask ratesRetrieveTask2;
+    private CurrencyRatesRetrieveTask currencyRatesRetrieveTask;
     @Mock
     private CurrencyRatesRepository currencyRatesRepository;
     @Mock
@@ -44,28 +52,35 @@ class CurrencyServiceTest {
     @Mock
     private TaskScheduler taskScheduler;
     @Mock
-    private ObjectProvider<CurrencyRatesRetrieveTask> ratesRetrieveTaskObjectProvider;
-    private ConcurrentHashMap<String, CurrencyRates> currencyRatesMap;
+    private RatesWarmStartFile ratesWarmStartFile;
+    private final CurrencyRatesSnapshotFactory currencyRatesSnapshotFactory =
+            new CurrencyRatesSnapshotFactory(Jackson2ObjectMapperBuilder.json().build(), false);
+    private ConcurrentHashMap<String, CurrencyRatesSnapshot> currencyRatesMap;
+    private CircuitBreaker currencyCircuitBreaker;
 
     private CurrencyService currencyService;
 
     @BeforeEach
     void setUp() {
         currencyRatesMap = new ConcurrentHashMap<>();
+        currencyCircuitBreaker = new CircuitBreaker(Clock.systemUTC(), 1, Duration.ofMinutes(1), Duration.ofMinutes(1));
         currencyService = new CurrencyService(currencyRatesMap, currencyRatesRepository, conversionService,
-                TEST_DURATION, taskScheduler, ratesRetrieveTaskObjectProvider);
+                currencyRatesSnapshotFactory, TEST_DURATION, taskScheduler, currencyRatesRetrieveTask, currencyCircuitBreaker,
+                new CurrencyMetrics(new SimpleMeterRegistry()), TEST_SYNC_DURATION,
+                ratesWarmStartFile, false);
     }
 
     @AfterEach
     void tearDown() {
-        verifyNoMoreInteractions(currencyRatesRepository, conversionService, taskScheduler, ratesRetrieveTaskObjectProvider);
+        verifyNoMoreInteractions(currencyRatesRepository, conversionService, taskScheduler, currencyRatesRetrieveTask,
+                ratesWarmStartFile);
     }
 
     @Test
     public void shouldGetAllCurrencies() {
         List<String> expectedCurrencies = List.of(TEST_CURRENCY_USD, TEST_CURRENCY_EUR);
-        currencyRatesMap.put(TEST_CURRENCY_USD, new CurrencyRates(TEST_CURRENCY_USD, TEST_RATE_DATE_TIME, TEST_RATES));
-        currencyRatesMap.put(TEST_CURRENCY_EUR, new CurrencyRates(TEST_CURRENCY_EUR, TEST_RATE_DATE_TIME, TEST_RATES));
+        currencyRatesMap.put(TEST_CURRENCY_USD, currencyRatesSnapshotFactory.create(new CurrencyRates(TEST_CURRENCY_USD, TEST_RATE_DATE_TIME, TEST_RATES)));
+        currencyRatesMap.put(TEST_CURRENCY_EUR, currencyRatesSnapshotFactory.create(new CurrencyRates(TEST_CURRENCY_EUR, TEST_RATE_DATE_TIME, TEST_RATES)));
 
         List<String> actualCurrencies = currencyService.getAllCurrencies();
 
@@ -75,46 +90,171 @@ class CurrencyServiceTest {
     @Test
     public void shouldGetCurrencyRateWhenCurrencyIsExist() {
         var currencyRates = new CurrencyRates(TEST_CURRENCY_USD, TEST_RATE_DATE_TIME, TEST_RATES);
-        currencyRatesMap.put(TEST_CURRENCY_USD, currencyRates);
+        currencyRatesMap.put(TEST_CURRENCY_USD, currencyRatesSnapshotFactory.create(currencyRates));
 
         CurrencyRates actualRates = currencyService.getCurrencyRate(TEST_CURRENCY_USD);
 
         assertThat(actualRates).isEqualTo(currencyRates);
     }
 
+    @Test
+    public void shouldGetCurrencyRatesDeltaWhenClientKnowsPreviousVersion() {
+        var previous = currencyRatesSnapshotFactory.create(new CurrencyRates(TEST_CURRENCY_USD, TEST_RATE_DATE_TIME.minusHours(1),
+                RateTable.of(Map.of("GBP", 0.72, "JPY", 107.346001))));
+        var currencyRatesSnapshot = currencyRatesSnapshotFactory.create(new CurrencyRates(TEST_CURRENCY_USD, TEST_RATE_DATE_TIME, TEST_RATES), previous);
+        currencyRatesMap.put(TEST_CURRENCY_USD, currencyRatesSnapshot);
+
+        var delta = currencyService.getCurrencyRatesDelta(TEST_CURRENCY_USD, previous.version());
+
+        assertThat(delta).isSameAs(currencyRatesSnapshot.delta());
+        assertThat(delta.rates()).isEqualTo(RateTable.of(Map.of("GBP", 0.72007, "EUR", 0.813399, "BTC", 1.6295132e-5)));
+    }
+
+    @Test
+    public void shouldGetEmptyCurrencyRatesDeltaWhenClientKnowsCurrentVersion() {
+        var currencyRatesSnapshot = currencyRatesSnapshotFactory.create(new CurrencyRates(TEST_CURRENCY_USD, TEST_RATE_DATE_TIME, TEST_RATES));
+        currencyRatesMap.put(TEST_CURRENCY_USD, currencyRatesSnapshot);
+
+        var delta = currencyService.getCurrencyRatesDelta(TEST_CURRENCY_USD, currencyRatesSnapshot.version());
+
+        assertThat(delta.since()).isEqualTo(currencyRatesSnapshot.version());
+        assertThat(delta.version()).isEqualTo(currencyRatesSnapshot.version());
+        assertThat(delta.rates().size()).isZero();
+        assertThat(delta.removed()).isEmpty();
+    }
+
+    @Test
+    public void shouldGetAllRatesAsDeltaWhenClientVersionIsUnknown() {
+        var currencyRatesSnapshot = currencyRatesSnapshotFactory.create(new CurrencyRates(TEST_CURRENCY_USD, TEST_RATE_DATE_TIME, TEST_RATES));
+        currencyRatesMap.put(TEST_CURRENCY_USD, currencyRatesSnapshot);
+
+        var delta = currencyService.getCurrencyRatesDelta(TEST_CURRENCY_USD, 1);
+
+        assertThat(delta.since()).isNull();
+        assertThat(delta.version()).isEqualTo(currencyRatesSnapshot.version());
+        assertThat(delta.rates()).isEqualTo(TEST_RATES);
+    }
+
+    @Test
+    public void shouldGetCurrencyRatesSnapshotWhenCurrencyIsExist() {
+        var currencyRatesSnapshot = currencyRatesSnapshotFactory.create(new CurrencyRates(TEST_CURRENCY_USD, TEST_RATE_DATE_TIME, TEST_RATES));
+        currencyRatesMap.put(TEST_CURRENCY_USD, currencyRatesSnapshot);
+
+        var actualSnapshot = currencyService.getCurrencyRatesSnapshot(TEST_CURRENCY_USD);
+
+        assertThat(actualSnapshot).isSameAs(currencyRatesSnapshot);
+    }
+
     @Test
     public void shouldThrowAnExceptionOnGetCurrencyRateWhenCurrencyIsNotExist() {
         var currencyRates = new CurrencyRates(TEST_CURRENCY_USD, TEST_RATE_DATE_TIME, TEST_RATES);
-        currencyRatesMap.put(TEST_CURRENCY_USD, currencyRates);
+        currencyRatesMap.put(TEST_CURRENCY_USD, currencyRatesSnapshotFactory.create(currencyRates));
 
         assertThrows(CurrencyServiceException.class, () -> currencyService.getCurrencyRate("NotValid"));
     }
 
+    @Test
+    public void shouldGetFreshRatesFreshnessWhenRatesWereRefreshedInTime() {
+        var currencyRatesSnapshot = currencyRatesSnapshotFactory.create(
+                new CurrencyRates(TEST_CURRENCY_USD, LocalDateTime.now().minus(TEST_DURATION), TEST_RATES));
+
+        var ratesFreshness = currencyService.getRatesFreshness(currencyRatesSnapshot);
+
+        assertThat(ratesFreshness.stale()).isFalse();
+        assertThat(ratesFreshness.ageSeconds()).isBetween(TEST_DURATION.toSeconds(), TEST_DURATION.toSeconds() + 5);
+    }
+
+    @Test
+    public void shouldGetStaleRatesFreshnessWhenRatesMissedTwoRefreshIntervals() {
+        var currencyRatesSnapshot = currencyRatesSnapshotFactory.create(
+                new CurrencyRates(TEST_CURRENCY_USD, LocalDateTime.now().minus(TEST_DURATION.multipliedBy(3)), TEST_RATES));
+
+        var ratesFreshness = currencyService.getRatesFreshness(currencyRatesSnapshot);
+
+        assertThat(ratesFreshness.stale()).isTrue();
+    }
+
+    @Test
+    public void shouldGetStaleRatesFreshnessWhenCircuitBreakerIsOpen() {
+        var currencyRatesSnapshot = currencyRatesSnapshotFactory.create(
+                new CurrencyRates(TEST_CURRENCY_USD, LocalDateTime.now(), TEST_RATES));
+        currencyCircuitBreaker.onFailure();
+
+        var ratesFreshness = currencyService.getRatesFreshness(currencyRatesSnapshot);
+
+        assertThat(ratesFreshness.stale()).isTrue();
+    }
+
+    @Test
+    public void shouldConvertAmount() {
+        currencyRatesMap.put(TEST_CURRENCY_USD, currencyRatesSnapshotFactory.create(new CurrencyRates(TEST_CURRENCY_USD, TEST_RATE_DATE_TIME, TEST_RATES)));
+
+        var actualConversion = currencyService.convert(TEST_CURRENCY_USD, "JPY", 10);
+
+        assertThat(actualConversion).isEqualTo(new CurrencyConversion(TEST_CURRENCY_USD, "JPY", 10, 107.346001, 10 * 107.346001, TEST_RATE_DATE_TIME));
+    }
+
+    @Test
+    public void shouldConvertAmountToSameCurrency() {
+        currencyRatesMap.put(TEST_CURRENCY_USD, currencyRatesSnapshotFactory.create(new CurrencyRates(TEST_CURRENCY_USD, TEST_RATE_DATE_TIME, TEST_RATES)));
+
+        var actualConversion = currencyService.convert(TEST_CURRENCY_USD, TEST_CURRENCY_USD, 10);
+
+        assertThat(actualConversion.result()).isEqualTo(10);
+    }
+
+    @Test
+    public void shouldThrowAnExceptionOnConvertWhenThereIsNoRateForTargetCurrency() {
+        currencyRatesMap.put(TEST_CURRENCY_USD, currencyRatesSnapshotFactory.create(new CurrencyRates(TEST_CURRENCY_USD, TEST_RATE_DATE_TIME, TEST_RATES)));
+
+        assertThrows(CurrencyServiceException.class, () -> currencyService.convert(TEST_CURRENCY_USD, "NotValid", 10));
+    }
+
+    @Test
+    public void shouldThrowAnExceptionOnConvertWhenCurrencyIsNotExist() {
+        assertThrows(CurrencyServiceException.class, () -> currencyService.convert("NotValid", TEST_CURRENCY_USD, 10));
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {-1, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY})
+    public void shouldThrowAnExceptionOnConvertWhenAmountIsNotValid(double amount) {
+        var exception = assertThrows(CurrencyServiceException.class, () -> currencyService.convert(TEST_CURRENCY_USD, "JPY", amount));
+
+        assertThat(exception.getError()).isEqualTo("Invalid amount");
+    }
+
     @Test
     public void shouldAddCurrency() {
-        when(ratesRetrieveTaskObjectProvider.getObject(TEST_CURRENCY_USD)).thenReturn(ratesRetrieveTask1);
+        when(currencyRatesRetrieveTask.add(TEST_CURRENCY_USD)).thenReturn(true);
 
         currencyService.addCurrency(TEST_CURRENCY_USD);
-
-        verify(taskScheduler).scheduleAtFixedRate(ratesRetrieveTask1, TEST_DURATION);
     }
 
     @Test
     public void shouldThrowAnExceptionOnAddCurrencyWhenCurrencyIsNotExist() {
         var currencyRates = new CurrencyRates(TEST_CURRENCY_USD, TEST_RATE_DATE_TIME, TEST_RATES);
-        currencyRatesMap.put(TEST_CURRENCY_USD, currencyRates);
+        currencyRatesMap.put(TEST_CURRENCY_USD, currencyRatesSnapshotFactory.create(currencyRates));
+
+        assertThrows(CurrencyServiceException.class, () -> currencyService.addCurrency(TEST_CURRENCY_USD));
+    }
+
+    @Test
+    public void shouldThrowAnExceptionOnAddCurrencyWhenCurrencyIsAlreadyRegistered() {
+        when(currencyRatesRetrieveTask.add(TEST_CURRENCY_USD)).thenReturn(false);
 
         assertThrows(CurrencyServiceException.class, () -> currencyService.addCurrency(TEST_CURRENCY_USD));
     }
 
     @Test
     public void shouldInitWhenNoRatesInDB() {
+        when(ratesWarmStartFile.read()).thenReturn(List.of());
         when(currencyRatesRepository.findLatestRatesForAllCurrencies()).thenReturn(List.of());
 
         currencyService.init();
 
         assertThat(currencyRatesMap).isEmpty();
-        verify(taskScheduler, never()).scheduleAtFixedRate(any(), any());
+        verify(taskScheduler).scheduleAtFixedRate(eq(currencyRatesRetrieveTask), any(Instant.class), eq(TEST_DURATION));
+        verify(taskScheduler).scheduleWithFixedDelay(any(Runnable.class), any(Instant.class), eq(TEST_SYNC_DURATION));
     }
 
     @Test
@@ -123,8 +263,7 @@ class CurrencyServiceTest {
         var localDateTime1 = now.minusMinutes(60);
         var localDateTime2 = now.minusMinutes(30);
 
-        var scheduledJobDateTime1 = localDateTime1.plusMinutes(TEST_DURATION.toMinutes()).atZone(ZoneId.systemDefault()).toInstant();
-        var scheduledJobDateTime2 = localDateTime2.plusMinutes(TEST_DURATION.toMinutes()).atZone(ZoneId.systemDefault()).toInstant();
+        var scheduledJobDateTime = localDateTime1.plusMinutes(TEST_DURATION.toMinutes()).atZone(ZoneId.systemDefault()).toInstant();
 
         var entity1 = new CurrencyRatesEntity();
         entity1.setCurrency(TEST_CURRENCY_USD);
@@ -132,22 +271,133 @@ class CurrencyServiceTest {
 
         var entity2 = new CurrencyRatesEntity();
         entity2.setCurrency(TEST_CURRENCY_EUR);
-        entity2.setDateTime(now.minusMinutes(30));
+        entity2.setDateTime(localDateTime2);
 
         var currencyRate1 = new CurrencyRates(TEST_CURRENCY_USD, localDateTime1, TEST_RATES);
         var currencyRate2 = new CurrencyRates(TEST_CURRENCY_EUR, localDateTime2, TEST_RATES);
 
         when(conversionService.convert(entity1, CurrencyRates.class)).thenReturn(currencyRate1);
         when(conversionService.convert(entity2, CurrencyRates.class)).thenReturn(currencyRate2);
-        when(ratesRetrieveTaskObjectProvider.getObject(TEST_CURRENCY_USD)).thenReturn(ratesRetrieveTask1);
-        when(ratesRetrieveTaskObjectProvider.getObject(TEST_CURRENCY_EUR)).thenReturn(ratesRetrieveTask2);
+        when(ratesWarmStartFile.read()).thenReturn(List.of());
         when(currencyRatesRepository.findLatestRatesForAllCurrencies()).thenReturn(List.of(entity1, entity2));
 
         currencyService.init();
 
-        assertThat(currencyRatesMap)
-                .containsAllEntriesOf(Map.of(TEST_CURRENCY_USD, currencyRate1, TEST_CURRENCY_EUR, currencyRate2));
-        verify(taskScheduler).scheduleAtFixedRate(ratesRetrieveTask1, scheduledJobDateTime1, TEST_DURATION);
-        verify(taskScheduler).scheduleAtFixedRate(ratesRetrieveTask2, scheduledJobDateTime2, TEST_DURATION);
+        assertThat(currencyRatesMap).hasSize(2);
+        assertThat(currencyRatesMap.get(TEST_CURRENCY_USD).currencyRates()).isEqualTo(currencyRate1);
+        assertThat(currencyRatesMap.get(TEST_CURRENCY_EUR).currencyRates()).isEqualTo(currencyRate2);
+        verify(currencyRatesRetrieveTask).register(TEST_CURRENCY_USD);
+        verify(currencyRatesRetrieveTask).register(TEST_CURRENCY_EUR);
+        verify(taskScheduler).scheduleAtFixedRate(currencyRatesRetrieveTask, scheduledJobDateTime, TEST_DURATION);
+        verify(taskScheduler).scheduleWithFixedDelay(any(Runnable.class), any(Instant.class), eq(TEST_SYNC_DURATION));
+    }
+
+    @Test
+    public void shouldInitFromWarmStartFileAndApplyRatesFromDBInBackground() {
+        var dateTime = LocalDateTime.now().minusMinutes(10);
+        var currencyRates = new CurrencyRates(TEST_CURRENCY_USD, dateTime, TEST_RATES);
+        when(ratesWarmStartFile.read()).thenReturn(List.of(currencyRates));
+
+        currencyService.init();
+
+        assertThat(currencyRatesMap.get(TEST_CURRENCY_USD).currencyRates()).isEqualTo(currencyRates);
+        verify(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+        verify(currencyRatesRetrieveTask).register(TEST_CURRENCY_USD);
+        verify(taskScheduler).scheduleAtFixedRate(currencyRatesRetrieveTask,
+                dateTime.plusMinutes(TEST_DURATION.toMinutes()).atZone(ZoneId.systemDefault()).toInstant(), TEST_DURATION);
+        verify(taskScheduler).scheduleWithFixedDelay(any(Runnable.class), any(Instant.class), eq(TEST_SYNC_DURATION));
+    }
+
+    @Test
+    public void shouldApplyRatesFromDBOnlyAfterWarmStartFileRatesAreInMap() {
+        var currencyRates = new CurrencyRates(TEST_CURRENCY_USD, LocalDateTime.now().minusMinutes(10), TEST_RATES);
+        when(ratesWarmStartFile.read()).thenReturn(List.of(currencyRates));
+        when(taskScheduler.schedule(any(Runnable.class), any(Instant.class))).thenAnswer(invocation -> {
+            assertThat(currencyRatesMap).containsKey(TEST_CURRENCY_USD);
+            return null;
+        });
+
+        currencyService.init();
+
+        verify(currencyRatesRetrieveTask).register(TEST_CURRENCY_USD);
+        verify(taskScheduler).scheduleAtFixedRate(eq(currencyRatesRetrieveTask), any(Instant.class), eq(TEST_DURATION));
+        verify(taskScheduler).scheduleWithFixedDelay(any(Runnable.class), any(Instant.class), eq(TEST_SYNC_DURATION));
+    }
+
+    @Test
+    public void shouldNotReplaceNewerRatesAppliedBeforeInitWithWarmStartFileRates() {
+        var dateTime = LocalDateTime.now().minusMinutes(10);
+        var newerSnapshot = currencyRatesSnapshotFactory.create(new CurrencyRates(TEST_CURRENCY_USD, dateTime.plusMinutes(5), TEST_RATES));
+        currencyRatesMap.put(TEST_CURRENCY_USD, newerSnapshot);
+        when(ratesWarmStartFile.read()).thenReturn(List.of(new CurrencyRates(TEST_CURRENCY_USD, dateTime, TEST_RATES)));
+
+        currencyService.init();
+
+        assertThat(currencyRatesMap.get(TEST_CURRENCY_USD)).isSameAs(newerSnapshot);
+        verify(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+        verify(currencyRatesRetrieveTask).register(TEST_CURRENCY_USD);
+        verify(taskScheduler).scheduleAtFixedRate(eq(currencyRatesRetrieveTask), any(Instant.class), eq(TEST_DURATION));
+        verify(taskScheduler).scheduleWithFixedDelay(any(Runnable.class), any(Instant.class), eq(TEST_SYNC_DURATION));
+    }
+
+    @Test
+    public void shouldScheduleWarmStartFileWriteOnceForSeveralPublishedRates() {
+        var currencyRatesSnapshot = currencyRatesSnapshotFactory.create(new CurrencyRates(TEST_CURRENCY_USD, TEST_RATE_DATE_TIME, TEST_RATES));
+        when(ratesWarmStartFile.isEnabled()).thenReturn(true);
+
+        currencyService.onCurrencyRatesPublished(new CurrencyRatesPublishedEvent(currencyRatesSnapshot));
+        currencyService.onCurrencyRatesPublished(new CurrencyRatesPublishedEvent(currencyRatesSnapshot));
+
+        verify(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    @Test
+    public void shouldScheduleInitInBackgroundWhenStartupIsAsync() {
+        var asyncCurrencyService = buildAsyncCurrencyService();
+
+        asyncCurrencyService.init();
+
+        assertThat(asyncCurrencyService.isHydrated()).isFalse();
+        verify(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    @Test
+    public void shouldLoadCurrencyOnFirstAccessWhileWarmingUp() {
+        var currencyRatesEntity = new CurrencyRatesEntity();
+        var currencyRates = new CurrencyRates(TEST_CURRENCY_USD, TEST_RATE_DATE_TIME, TEST_RATES);
+        when(currencyRatesRepository.findFirstByCurrencyOrderByDateTimeDesc(TEST_CURRENCY_USD)).thenReturn(Optional.of(currencyRatesEntity));
+        when(conversionService.convert(currencyRatesEntity, CurrencyRates.class)).thenReturn(currencyRates);
+        var asyncCurrencyService = buildAsyncCurrencyService();
+
+        var actualSnapshot = asyncCurrencyService.getCurrencyRatesSnapshot(TEST_CURRENCY_USD);
+
+        assertThat(actualSnapshot.currencyRates()).isEqualTo(currencyRates);
+        assertThat(currencyRatesMap).containsKey(TEST_CURRENCY_USD);
+    }
+
+    @Test
+    public void shouldThrowWarmingUpExceptionWhenCurrencyIsNotLoadedYet() {
+        when(currencyRatesRepository.findFirstByCurrencyOrderByDateTimeDesc(TEST_CURRENCY_USD)).thenReturn(Optional.empty());
+        var asyncCurrencyService = buildAsyncCurrencyService();
+
+        assertThrows(RatesWarmingUpException.class, () -> asyncCurrencyService.getCurrencyRatesSnapshot(TEST_CURRENCY_USD));
+    }
+
+    @Test
+    public void shouldBeHydratedAfterBlockingInit() {
+        when(ratesWarmStartFile.read()).thenReturn(List.of());
+        when(currencyRatesRepository.findLatestRatesForAllCurrencies()).thenReturn(List.of());
+
+        currencyService.init();
+
+        assertThat(currencyService.isHydrated()).isTrue();
+        verify(taskScheduler).scheduleAtFixedRate(eq(currencyRatesRetrieveTask), any(Instant.class), eq(TEST_DURATION));
+        verify(taskScheduler).scheduleWithFixedDelay(any(Runnable.class), any(Instant.class), eq(TEST_SYNC_DURATION));
+    }
+
+    private CurrencyService buildAsyncCurrencyService() {
+        return new CurrencyService(currencyRatesMap, currencyRatesRepository, conversionService,
+                currencyRatesSnapshotFactory, TEST_DURATION, taskScheduler, currencyRatesRetrieveTask, currencyCircuitBreaker,
+                new CurrencyMetrics(new SimpleMeterRegistry()), TEST_SYNC_DURATION, ratesWarmStartFile, true);
     }
-}
\ No newline at end of file
+}
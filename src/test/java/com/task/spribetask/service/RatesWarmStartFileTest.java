@@ -0,0 +1,77 @@
+package com.task.spribetask.service;
+
+import com.task.spribetask.dto.CurrencyRates;
+import com.task.spribetask.rates.RateTable;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RatesWarmStartFileTest {
+
+    private static final LocalDateTime TEST_RATE_DATE_TIME = LocalDateTime.of(2024, 4, 2, 8, 23, 0, 123_000_000);
+    private static final CurrencyRates TEST_USD_RATES = new CurrencyRates("USD", TEST_RATE_DATE_TIME,
+            RateTable.of(Map.of("EUR", 0.72007, "JPY", 107.346001, "BTC", 1.6295132e-5)));
+    private static final CurrencyRates TEST_EUR_RATES = new CurrencyRates("EUR", TEST_RATE_DATE_TIME.plusHours(1),
+            RateTable.of(Map.of("USD", 1.388753, "GBP", 0.85)));
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void shouldReadWrittenRates() {
+        var ratesWarmStartFile = new RatesWarmStartFile(true, directory.resolve("warm-start/rates.bin"));
+
+        ratesWarmStartFile.write(List.of(TEST_USD_RATES, TEST_EUR_RATES));
+
+        assertThat(ratesWarmStartFile.read()).containsExactly(TEST_USD_RATES, TEST_EUR_RATES);
+    }
+
+    @Test
+    void shouldReplaceRatesOnWrite() {
+        var ratesWarmStartFile = new RatesWarmStartFile(true, directory.resolve("rates.bin"));
+        ratesWarmStartFile.write(List.of(TEST_USD_RATES, TEST_EUR_RATES));
+
+        ratesWarmStartFile.write(List.of(TEST_EUR_RATES));
+
+        assertThat(ratesWarmStartFile.read()).containsExactly(TEST_EUR_RATES);
+    }
+
+    @Test
+    void shouldReadNothingWhenFileIsMissing() {
+        var ratesWarmStartFile = new RatesWarmStartFile(true, directory.resolve("rates.bin"));
+
+        assertThat(ratesWarmStartFile.read()).isEmpty();
+    }
+
+    @Test
+    @SneakyThrows
+    void shouldReadNothingWhenFileIsCorrupted() {
+        var file = directory.resolve("rates.bin");
+        var ratesWarmStartFile = new RatesWarmStartFile(true, file);
+        ratesWarmStartFile.write(List.of(TEST_USD_RATES));
+        var bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertThat(ratesWarmStartFile.read()).isEmpty();
+    }
+
+    @Test
+    void shouldNeitherWriteNorReadWhenDisabled() {
+        var file = directory.resolve("rates.bin");
+        var ratesWarmStartFile = new RatesWarmStartFile(false, file);
+
+        ratesWarmStartFile.write(List.of(TEST_USD_RATES));
+
+        assertThat(file).doesNotExist();
+        assertThat(ratesWarmStartFile.read()).isEmpty();
+    }
+}
@@ -1,10 +1,17 @@
+create sequence if not exists currencies_rates_id_seq increment by 50;
+
 create table if not exists currencies_rates
 (
-    id        serial primary key,
-    currency  varchar(50),
-    date_time timestamp,
-    rates     jsonb
-);
+    id        bigint      not null default nextval('currencies_rates_id_seq'),
+    currency  varchar(50) not null,
+    date_time timestamp   not null,
+    rates     jsonb,
+    primary key (id, date_time)
+) partition by range (date_time);
+
+create table if not exists currencies_rates_default partition of currencies_rates default;
+
+create index if not exists currencies_rates_currency_date_time_id_idx on currencies_rates (currency, date_time desc, id desc);
 
 
 insert into currencies_rates (currency, date_time, rates)
@@ -1,8 +1,31 @@
+create sequence if not exists currencies_rates_id_seq increment by 50;
+
 create table if not exists currencies_rates
 (
-    id        serial primary key,
-    currency  varchar(50),
-    date_time timestamp,
-    rates     jsonb
+    id        bigint      not null default nextval('currencies_rates_id_seq'),
+    currency  varchar(50) not null,
+    date_time timestamp   not null,
+    rates     jsonb,
+    primary key (id, date_time)
+) partition by range (date_time);
+
+create table if not exists currencies_rates_default partition of currencies_rates default;
+
+create index if not exists currencies_rates_currency_date_time_id_idx on currencies_rates (currency, date_time desc, id desc);
+
+create table if not exists currencies_rates_ohlc
+(
+    currency   varchar(50) not null,
+    symbol     varchar(50) not null,
+    period     varchar(10) not null,
+    bucket     timestamp   not null,
+    open       numeric     not null,
+    high       numeric     not null,
+    low        numeric     not null,
+    close      numeric     not null,
+    open_time  timestamp   not null,
+    close_time timestamp   not null,
+    primary key (currency, symbol, period, bucket)
 );
 
+create index if not exists currencies_rates_ohlc_period_bucket_idx on currencies_rates_ohlc (period, bucket);